@@ -5,7 +5,7 @@ import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 
-import ajb.domain.Pixel;
+import ajb.domain.PixelGrid;
 import ajb.enums.AssetSize;
 import ajb.factory.AsteroidGeneratorFactory;
 import ajb.utils.ImageUtils;
@@ -20,12 +20,12 @@ public class CreateImageFullOfAsteroids {
 		for (AssetSize size : AssetSize.values()) {
 			if (!size.equals(AssetSize.RANDOM)) {
 				// list to hold all the vessels we generate
-				List<Pixel[][]> grids = new ArrayList<Pixel[][]>();
+				List<PixelGrid> grids = new ArrayList<PixelGrid>();
 
 				// create X vessels and add to our list
 				for (int i = 0; i < 60; i++) {
 
-					Pixel[][] grid = factory.create(size);
+					PixelGrid grid = factory.create(size);
 
 					// add grid to list
 					grids.add(grid);
@@ -2,10 +2,8 @@ package ajb.examples;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.List;
 
-import ajb.domain.Pixel;
+import ajb.factory.AssetStream;
 import ajb.factory.ConsoleGeneratorFactory;
 import ajb.utils.ImageUtils;
 
@@ -16,17 +14,9 @@ public class CreateImageFullOfConsoles {
 		// get an instance of our factory
 		ConsoleGeneratorFactory factory = new ConsoleGeneratorFactory();
 
-		// list to hold all the console we generate
-		List<Pixel[][]> grids = new ArrayList<Pixel[][]>();
-
-		// create X console and add to our list
-		for (int i = 0; i < 240; i++) {
-
-			Pixel[][] grid = factory.create();
-
-			// add grid to list
-			grids.add(grid);
-		}
+		// create X consoles lazily, each one is generated as the image is drawn
+		// so they are never all held at once
+		AssetStream grids = AssetStream.of(factory, System.nanoTime()).limit(240);
 
         //g.setColor(Color.decode("#FFC600"));
         //int identifierWidth = g.getFontMetrics().stringWidth(hex.getIdentifier());
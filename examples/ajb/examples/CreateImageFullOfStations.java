@@ -2,33 +2,25 @@ package ajb.examples;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
 import java.util.List;
 
-import ajb.domain.Pixel;
+import ajb.domain.PixelGrid;
 import ajb.enums.AssetSize;
-import ajb.factory.StationGeneratorFactory;
+import ajb.enums.AssetType;
+import ajb.factory.BatchGenerator;
 import ajb.utils.ImageUtils;
 
 public class CreateImageFullOfStations {
 
 	public static void main(String[] args) {
 
-		// get an instance of our factory
-		StationGeneratorFactory factory = new StationGeneratorFactory();
+		// spreads the work over a thread per processor
+		BatchGenerator generator = new BatchGenerator();
 
 		for (AssetSize size : AssetSize.values()) {
-			// list to hold all the stations we generate
-			List<Pixel[][]> grids = new ArrayList<Pixel[][]>();
-
-			// create X stations and add to our list
-			for (int i = 0; i < 70; i++) {
-
-				Pixel[][] grid = factory.create(size);
-
-				// add grid to list
-				grids.add(grid);
-			}
+			// create X stations, each from its own seed so the same seeds always
+			// give the same stations
+			List<PixelGrid> grids = generator.generateBatch(AssetType.STATION, size, 70, System.nanoTime()).getGrids();
 
 			Color primaryColor = Color.decode("#2A2A2A");
 
@@ -41,6 +33,8 @@ public class CreateImageFullOfStations {
 			// as is it will be in the root project folder
 			ImageUtils.save(img, "png", "stations_" + size);
 		}
+
+		generator.shutdown();
 	}
 
 }
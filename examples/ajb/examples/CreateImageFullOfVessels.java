@@ -2,34 +2,26 @@ package ajb.examples;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
 import java.util.List;
 
-import ajb.domain.Pixel;
+import ajb.domain.PixelGrid;
 import ajb.enums.AssetSize;
-import ajb.factory.VesselGeneratorFactory;
+import ajb.enums.AssetType;
+import ajb.factory.BatchGenerator;
 import ajb.utils.ImageUtils;
 
 public class CreateImageFullOfVessels {
 
 	public static void main(String[] args) {
 
-		// get an instance of our vessel factory
-		VesselGeneratorFactory factory = new VesselGeneratorFactory();
+		// spreads the work over a thread per processor
+		BatchGenerator generator = new BatchGenerator();
 
 		for (AssetSize size : AssetSize.values()) {
-			// list to hold all the vessels we generate
-			List<Pixel[][]> grids = new ArrayList<Pixel[][]>();
-	
-			// create X vessels and add to our list
-			for (int i = 0; i < 100; i++) {
-	
-				Pixel[][] grid = factory.create(size);
-	
-				// add grid to list
-				grids.add(grid);
-			}
-	
+			// create X vessels, each from its own seed so the same seeds always
+			// give the same vessels
+			List<PixelGrid> grids = generator.generateBatch(AssetType.VESSEL, size, 100, System.nanoTime()).getGrids();
+
 			Color primaryColor = Color.decode("#2A2A2A");
 	
 			// create image
@@ -40,6 +32,8 @@ public class CreateImageFullOfVessels {
 			// as is it will be in the root project folder
 			ImageUtils.save(img, "png", "vessels_" + size);
 		}
+
+		generator.shutdown();
 	}
 
 }
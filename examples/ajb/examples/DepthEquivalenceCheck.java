@@ -0,0 +1,149 @@
+package ajb.examples;
+
+import ajb.domain.Pixel;
+import ajb.domain.PixelGrid;
+import ajb.enums.AssetSize;
+import ajb.factory.AsteroidGeneratorFactory;
+import ajb.factory.ConsoleGeneratorFactory;
+import ajb.factory.StationGeneratorFactory;
+import ajb.factory.TileGeneratorFactory;
+import ajb.factory.VesselGeneratorFactory;
+
+/**
+ * Checks that the depths set by PixelGridUtils.setPixelDepth match the
+ * original implementation, which walked out from every pixel in all four
+ * directions counting the pixels of the same type. Seeded grids are made for
+ * every factory and size and each depth is compared against that original.
+ *
+ * Pass the number of seeds to check as the first argument, 100 by default.
+ */
+public class DepthEquivalenceCheck {
+
+	public static void main(String[] args) {
+
+		int noOfSeeds = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+
+		AsteroidGeneratorFactory asteroidFactory = new AsteroidGeneratorFactory();
+		VesselGeneratorFactory vesselFactory = new VesselGeneratorFactory();
+		StationGeneratorFactory stationFactory = new StationGeneratorFactory();
+		TileGeneratorFactory tileFactory = new TileGeneratorFactory();
+		ConsoleGeneratorFactory consoleFactory = new ConsoleGeneratorFactory();
+
+		int noOfGrids = 0;
+		int noOfMismatches = 0;
+
+		for (long seed = 0; seed < noOfSeeds; seed++) {
+
+			for (AssetSize size : AssetSize.values()) {
+
+				// asteroids have no steps for RANDOM so there is nothing to make
+				if (!size.equals(AssetSize.RANDOM)) {
+					noOfMismatches += check("asteroid " + size, seed, asteroidFactory.create(size, seed));
+				}
+
+				noOfMismatches += check("vessel " + size, seed, vesselFactory.create(size, seed));
+				noOfMismatches += check("station " + size, seed, stationFactory.create(size, seed));
+				noOfGrids += size.equals(AssetSize.RANDOM) ? 2 : 3;
+			}
+
+			noOfMismatches += check("tile", seed, tileFactory.create(seed));
+			noOfMismatches += check("console", seed, consoleFactory.create(seed));
+			noOfGrids += 2;
+		}
+
+		System.out.println("grids checked: " + noOfGrids + ", pixels with a different depth: " + noOfMismatches);
+
+		if (noOfMismatches > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Returns the number of pixels whose depth differs from the original
+	 * implementation, printing the first one found
+	 */
+	private static int check(String name, long seed, PixelGrid grid) {
+
+		// mirrored cells shared a single Pixel in the original, and still
+		// share one here, so the last reflection written decides the depth
+		Pixel[][] pixels = grid.toPixels();
+
+		for (int r = 0; r < pixels.length; r++) {
+			for (int c = 0; c < pixels[0].length; c++) {
+				pixels[r][c].depth = 0;
+			}
+		}
+
+		setPixelDepth(pixels);
+
+		int noOfMismatches = 0;
+
+		for (int r = 0; r < pixels.length; r++) {
+			for (int c = 0; c < pixels[0].length; c++) {
+				if (grid.getDepth(r, c) != pixels[r][c].depth) {
+					if (noOfMismatches == 0) {
+						System.out.println(name + " seed " + seed + " differs at " + r + ", " + c + ": expected " + pixels[r][c].depth
+								+ " but was " + grid.getDepth(r, c));
+					}
+					noOfMismatches++;
+				}
+			}
+		}
+
+		grid.release();
+
+		return noOfMismatches;
+	}
+
+	/**
+	 * The original implementation, walking out from every pixel in all four
+	 * directions. Kept exactly as it was, including the walks up and left
+	 * stopping short of row and column 0.
+	 */
+	private static void setPixelDepth(Pixel[][] grid) {
+		for (int r = 0; r < grid.length; r++) {
+			for (int c = 0; c < grid[0].length; c++) {
+
+				if (grid[r][c].value != Pixel.EMPTY && 
+						grid[r][c].value != Pixel.BORDER) {
+					
+					int pixelValue = grid[r][c].value;
+	
+					int noOfSamePixelsAbove = 0;
+					int noOfSamePixelsBelow = 0;
+					int noOfSamePixelsOnTheLeft = 0;
+					int noOfSamePixelsOnTheRight = 0;
+	
+					for (int r1 = r - 1; r1 > 0; r1--) {
+						if (pixelValue == grid[r1][c].value) {
+							noOfSamePixelsAbove++;
+						}
+					}
+	
+					for (int r1 = r + 1; r1 < grid.length; r1++) {
+						if (pixelValue == grid[r1][c].value) {
+							noOfSamePixelsBelow++;
+						}
+					}
+	
+					for (int c1 = c - 1; c1 > 0; c1--) {
+						if (pixelValue == grid[r][c1].value) {
+							noOfSamePixelsOnTheLeft++;
+						}
+					}
+	
+					for (int c1 = c + 1; c1 < grid[0].length; c1++) {
+						if (pixelValue == grid[r][c1].value) {
+							noOfSamePixelsOnTheRight++;
+						}
+					}
+	
+					int depth1 = Math.min(noOfSamePixelsAbove, noOfSamePixelsBelow);
+					int depth2 = Math.min(noOfSamePixelsOnTheLeft, noOfSamePixelsOnTheRight);
+	
+					grid[r][c].depth = Math.min(depth1, depth2);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package ajb.examples;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+import ajb.domain.PixelGrid;
+import ajb.enums.AssetSize;
+import ajb.factory.VesselGeneratorFactory;
+import ajb.utils.ImageUtils;
+
+/**
+ * Measures how long it takes from the JVM starting to the first asset being
+ * saved, split into generating, rendering and saving. Run it with
+ * -Djava.awt.headless=true to check rendering works without a display.
+ */
+public class StartupBenchmark {
+
+	public static void main(String[] args) {
+
+		long jvmStartTime = ManagementFactory.getRuntimeMXBean().getStartTime();
+		long mainStartTime = System.currentTimeMillis();
+
+		// generate a single vessel
+		VesselGeneratorFactory factory = new VesselGeneratorFactory();
+		PixelGrid grid = factory.create(AssetSize.MEDIUM, 1L);
+
+		long generatedTime = System.currentTimeMillis();
+
+		// render it
+		BufferedImage img = ImageUtils.outputToImage(grid, Color.decode("#2A2A2A"), Color.decode("#5E9DC8"));
+
+		long renderedTime = System.currentTimeMillis();
+
+		// save it
+		// replace with the path of wherever you want the image to go - if left
+		// as is it will be in the root project folder
+		ImageUtils.save(img, "png", "startup_benchmark");
+
+		long savedTime = System.currentTimeMillis();
+
+		System.out.println("headless: " + Boolean.getBoolean("java.awt.headless"));
+		System.out.println("jvm start to main: " + (mainStartTime - jvmStartTime) + " ms");
+		System.out.println("generate: " + (generatedTime - mainStartTime) + " ms");
+		System.out.println("render: " + (renderedTime - generatedTime) + " ms");
+		System.out.println("save: " + (savedTime - renderedTime) + " ms");
+		System.out.println("jvm start to first saved asset: " + (savedTime - jvmStartTime) + " ms");
+	}
+
+}
@@ -0,0 +1,56 @@
+package ajb.domain;
+
+/**
+ * Keeps the position of every pixel filled in a grid so that a random filled
+ * pixel can be picked with a single draw rather than by searching the grid.
+ * Positions are packed into one int each, row in the high 16 bits and column
+ * in the low 16 bits.
+ */
+public class FilledPixelIndex {
+
+	private int[] positions;
+	private int size = 0;
+
+	public FilledPixelIndex() {
+		this(64);
+	}
+
+	public FilledPixelIndex(int initialCapacity) {
+		positions = new int[Math.max(initialCapacity, 1)];
+	}
+
+	/**
+	 * Adds the passed in position, each filled pixel should only be added once
+	 *
+	 * @param x
+	 *            {@link int}
+	 * @param y
+	 *            {@link int}
+	 */
+	public void add(int x, int y) {
+
+		if (size == positions.length) {
+			int[] grownPositions = new int[positions.length * 2];
+			System.arraycopy(positions, 0, grownPositions, 0, size);
+			positions = grownPositions;
+		}
+
+		positions[size++] = (x << 16) | y;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getX(int i) {
+		return positions[i] >>> 16;
+	}
+
+	public int getY(int i) {
+		return positions[i] & 0xFFFF;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+}
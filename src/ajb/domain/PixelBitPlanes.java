@@ -0,0 +1,213 @@
+package ajb.domain;
+
+/**
+ * A grid of pixels held as one bit plane per pixel type, each row of a plane
+ * being a run of longs with a bit per column. Questions about a single pixel
+ * type, such as which pixels are next to one that has it, are answered 64
+ * pixels at a time with shifts and masks rather than one pixel at a time.
+ *
+ * Planes are built from a {@link PixelGrid} when needed, the grid remains
+ * the place the pixels are kept.
+ */
+public class PixelBitPlanes {
+
+	private static final int NO_OF_TYPES = 4;
+
+	private final int rows;
+	private final int cols;
+	private final int wordsPerRow;
+
+	// indexed by pixel type then by (row * wordsPerRow) + (col / 64)
+	private final long[][] planes = new long[NO_OF_TYPES][];
+
+	/**
+	 * Creates planes where every pixel is Pixel.EMPTY. Throws
+	 * IllegalArgumentException if rows or cols is negative.
+	 *
+	 * @param rows
+	 *            {@link int}
+	 * @param cols
+	 *            {@link int}
+	 */
+	public PixelBitPlanes(int rows, int cols) {
+
+		if (rows < 0 || cols < 0) {
+			throw new IllegalArgumentException("rows and cols must not be negative");
+		}
+
+		this.rows = rows;
+		this.cols = cols;
+		this.wordsPerRow = (cols + 63) >>> 6;
+
+		for (int type = 0; type < NO_OF_TYPES; type++) {
+			planes[type] = new long[rows * wordsPerRow];
+		}
+
+		for (int r = 0; r < rows; r++) {
+			for (int w = 0; w < wordsPerRow; w++) {
+				planes[Pixel.EMPTY][(r * wordsPerRow) + w] = columnsInWord(w);
+			}
+		}
+	}
+
+	/**
+	 * Returns planes for the passed in number of rows and columns from the
+	 * top left of the passed in grid. Throws IllegalArgumentException if
+	 * either is negative or more than the grid has.
+	 *
+	 * @param grid
+	 *            {@link PixelGrid}
+	 * @param noOfRows
+	 *            {@link int}
+	 * @param noOfCols
+	 *            {@link int}
+	 * @return {@link PixelBitPlanes}
+	 */
+	public static PixelBitPlanes fromGrid(PixelGrid grid, int noOfRows, int noOfCols) {
+
+		if (noOfRows > grid.getRows() || noOfCols > grid.getCols()) {
+			throw new IllegalArgumentException("noOfRows and noOfCols must be within the grid");
+		}
+
+		PixelBitPlanes result = new PixelBitPlanes(noOfRows, noOfCols);
+		long[] empty = result.planes[Pixel.EMPTY];
+
+		for (int r = 0; r < noOfRows; r++) {
+
+			int rowStart = r * result.wordsPerRow;
+
+			for (int c = 0; c < noOfCols; c++) {
+
+				int pixelValue = grid.getValue(r, c);
+
+				if (pixelValue != Pixel.EMPTY) {
+					long bit = 1L << c;
+					empty[rowStart + (c >>> 6)] &= ~bit;
+					result.planes[pixelValue][rowStart + (c >>> 6)] |= bit;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getCols() {
+		return cols;
+	}
+
+	public int getValue(int r, int c) {
+
+		int word = (r * wordsPerRow) + (c >>> 6);
+		long bit = 1L << c;
+
+		for (int type = 0; type < NO_OF_TYPES; type++) {
+			if ((planes[type][word] & bit) != 0) {
+				return type;
+			}
+		}
+
+		return Pixel.EMPTY;
+	}
+
+	/**
+	 * Turns every pixel above, below, to the left or to the right of a
+	 * Pixel.FILLED pixel into Pixel.BORDER, unless it is Pixel.FILLED or
+	 * Pixel.SECONDARY itself, and returns a mask of the pixels that were
+	 * changed in the same layout as the planes.
+	 *
+	 * As in PixelGridUtils.addBorders the pixel in the passed in column never
+	 * puts a border on the pixel to its right.
+	 *
+	 * @param colWithNoBorderOnTheRight
+	 *            {@link int}
+	 * @return {@link long}[]
+	 */
+	public long[] addBorders(int colWithNoBorderOnTheRight) {
+
+		long[] filled = planes[Pixel.FILLED];
+		long[] secondary = planes[Pixel.SECONDARY];
+		long[] borders = new long[rows * wordsPerRow];
+
+		for (int r = 0; r < rows; r++) {
+
+			int rowStart = r * wordsPerRow;
+
+			for (int w = 0; w < wordsPerRow; w++) {
+
+				int i = rowStart + w;
+
+				long fromAbove = r > 0 ? filled[i - wordsPerRow] : 0;
+				long fromBelow = r < rows - 1 ? filled[i + wordsPerRow] : 0;
+
+				// a filled pixel borders the pixel on its left and, bar the
+				// one column, the pixel on its right
+				long fromTheRight = (filled[i] >>> 1) | (w < wordsPerRow - 1 ? filled[i + 1] << 63 : 0);
+				long fromTheLeft = (bordersOnTheRight(filled[i], w, colWithNoBorderOnTheRight) << 1)
+						| (w > 0 ? bordersOnTheRight(filled[i - 1], w - 1, colWithNoBorderOnTheRight) >>> 63 : 0);
+
+				borders[i] = (fromAbove | fromBelow | fromTheRight | fromTheLeft) & ~(filled[i] | secondary[i])
+						& columnsInWord(w);
+			}
+
+			for (int type = 0; type < NO_OF_TYPES; type++) {
+				if (type != Pixel.BORDER) {
+					for (int w = 0; w < wordsPerRow; w++) {
+						planes[type][rowStart + w] &= ~borders[rowStart + w];
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i < borders.length; i++) {
+			planes[Pixel.BORDER][i] |= borders[i];
+		}
+
+		return borders;
+	}
+
+	/**
+	 * Sets each pixel in the passed in mask to its value in these planes in
+	 * the top left of the passed in grid
+	 *
+	 * @param grid
+	 *            {@link PixelGrid}
+	 * @param mask
+	 *            {@link long}[]
+	 */
+	public void writeTo(PixelGrid grid, long[] mask) {
+
+		for (int r = 0; r < rows; r++) {
+			for (int w = 0; w < wordsPerRow; w++) {
+
+				long bits = mask[(r * wordsPerRow) + w];
+
+				while (bits != 0) {
+					int c = (w << 6) + Long.numberOfTrailingZeros(bits);
+					grid.setValue(r, c, getValue(r, c));
+					bits &= bits - 1;
+				}
+			}
+		}
+	}
+
+	// the filled pixels of the passed in word that border the pixel on their
+	// right
+	private static long bordersOnTheRight(long filled, int w, int colWithNoBorderOnTheRight) {
+
+		int c = colWithNoBorderOnTheRight - (w << 6);
+
+		return c >= 0 && c < 64 ? filled & ~(1L << c) : filled;
+	}
+
+	// the bits of the passed in word that are columns of the grid
+	private long columnsInWord(int w) {
+
+		int noOfCols = cols - (w << 6);
+
+		return noOfCols >= 64 ? -1L : (1L << noOfCols) - 1;
+	}
+}
@@ -0,0 +1,621 @@
+package ajb.domain;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A grid of pixels stored as flat primitive arrays rather than one
+ * {@link Pixel} object per cell. Values are held in a byte[] and depths in a
+ * short[], both row-major.
+ *
+ * Cells are addressed through an offset and a row stride so that a cropped
+ * grid is just a view over the same storage. Mirrored grids share storage
+ * between a cell and its reflection (exactly as the mirrored Pixel[][] grids
+ * shared Pixel references). Grids built by mirrorAndExtend only store the
+ * pixels that are not reflections of others, and map each row and column
+ * onto the stored one it reflects. Other shared grids keep a slot table
+ * mapping each cell onto its storage slot.
+ *
+ * A grid can also be created that keeps track of the rows and columns its
+ * non empty pixels fall within as they are set, so it can be floored without
+ * being scanned.
+ *
+ * Grids built by mirrorAndExtend know when they are symmetric about their
+ * centre, with every pixel shared with its reflection and nothing else, so
+ * that work done on one half or quarter of them covers the whole grid.
+ *
+ * Storage comes from the current thread's {@link PixelGridArena}, a grid
+ * that is no longer needed can be released to it to be reused.
+ */
+public class PixelGrid {
+
+	private final int rows;
+	private final int cols;
+
+	// where this grid starts within the storage, or within the slot table or
+	// row and column maps when it has them
+	private final int firstRow;
+	private final int firstCol;
+	private final int offset;
+	private final int stride;
+
+	// null when every cell has its own storage slot
+	private final int[] slots;
+
+	// the stored row and column each row and column of a mirrored grid is a
+	// reflection of, null when the grid is not mapped this way
+	private final int[] rowMap;
+	private final int[] colMap;
+
+	private final byte[] values;
+	private final short[] depths;
+
+	// bounds of the non empty pixels, only kept up to date while tracking
+	private final boolean trackBounds;
+	private boolean trackingBounds;
+	private int firstNonEmptyRow;
+	private int lastNonEmptyRow;
+	private int firstNonEmptyCol;
+	private int lastNonEmptyCol;
+
+	// set when every pixel is shared with its reflection about the centre of
+	// the grid and no other pixels are shared
+	private boolean mirroredHorizontally = false;
+	private boolean mirroredVertically = false;
+
+	// shared by every grid using the same storage, so however many of them
+	// are released it is only given back once
+	private final boolean[] released;
+
+	public PixelGrid(int rows, int cols) {
+		this(rows, cols, false);
+	}
+
+	/**
+	 * Creates an empty grid, if trackBounds is true the grid keeps track of
+	 * the bounds of its non empty pixels for as long as pixels are only ever
+	 * set to a value other than Pixel.EMPTY, and only through this grid
+	 * rather than a view of it
+	 *
+	 * @param rows
+	 *            {@link int}
+	 * @param cols
+	 *            {@link int}
+	 * @param trackBounds
+	 *            {@link boolean}
+	 */
+	public PixelGrid(int rows, int cols, boolean trackBounds) {
+		this(rows, cols, 0, 0, cols, null, null, null, PixelGridArena.get().takeValues(rows * cols),
+				PixelGridArena.get().takeDepths(rows * cols), new boolean[1], trackBounds);
+	}
+
+	private PixelGrid(int rows, int cols, int firstRow, int firstCol, int stride, int[] slots, int[] rowMap, int[] colMap,
+			byte[] values, short[] depths, boolean[] released) {
+		this(rows, cols, firstRow, firstCol, stride, slots, rowMap, colMap, values, depths, released, false);
+	}
+
+	private PixelGrid(int rows, int cols, int firstRow, int firstCol, int stride, int[] slots, int[] rowMap, int[] colMap,
+			byte[] values, short[] depths, boolean[] released, boolean trackBounds) {
+		this.rows = rows;
+		this.cols = cols;
+		this.firstRow = firstRow;
+		this.firstCol = firstCol;
+		this.offset = (firstRow * stride) + firstCol;
+		this.stride = stride;
+		this.slots = slots;
+		this.rowMap = rowMap;
+		this.colMap = colMap;
+		this.values = values;
+		this.depths = depths;
+		this.released = released;
+		this.trackBounds = trackBounds;
+
+		resetBounds();
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getCols() {
+		return cols;
+	}
+
+	public int getValue(int r, int c) {
+		return values[slot(r, c)];
+	}
+
+	public void setValue(int r, int c, int value) {
+		values[slot(r, c)] = (byte) value;
+
+		if (trackingBounds) {
+			if (value == Pixel.EMPTY) {
+				// the bounds could shrink, they are no longer known
+				trackingBounds = false;
+			} else {
+				firstNonEmptyRow = Math.min(firstNonEmptyRow, r);
+				lastNonEmptyRow = Math.max(lastNonEmptyRow, r);
+				firstNonEmptyCol = Math.min(firstNonEmptyCol, c);
+				lastNonEmptyCol = Math.max(lastNonEmptyCol, c);
+			}
+		}
+	}
+
+	public int getDepth(int r, int c) {
+		return depths[slot(r, c)];
+	}
+
+	public void setDepth(int r, int c, int depth) {
+		depths[slot(r, c)] = (short) depth;
+	}
+
+	/**
+	 * Returns true if the bounds of the non empty pixels in this grid are
+	 * known without scanning it
+	 *
+	 * @return {@link boolean}
+	 */
+	public boolean hasTrackedBounds() {
+		return trackingBounds;
+	}
+
+	public int getFirstNonEmptyRow() {
+		return firstNonEmptyRow;
+	}
+
+	public int getLastNonEmptyRow() {
+		return lastNonEmptyRow;
+	}
+
+	public int getFirstNonEmptyCol() {
+		return firstNonEmptyCol;
+	}
+
+	public int getLastNonEmptyCol() {
+		return lastNonEmptyCol;
+	}
+
+	/**
+	 * Returns true if some cells in this grid share a pixel with another cell
+	 * i.e. the grid has been mirrored
+	 *
+	 * @return {@link boolean}
+	 */
+	public boolean hasSharedPixels() {
+		return slots != null || rowMap != null;
+	}
+
+	/**
+	 * Returns true if every pixel in the left half of this grid is shared
+	 * with its reflection in the right half, and pixels are not shared in
+	 * any other way
+	 *
+	 * @return {@link boolean}
+	 */
+	public boolean isMirroredHorizontally() {
+		return mirroredHorizontally;
+	}
+
+	/**
+	 * Returns true if every pixel in the top half of this grid is shared
+	 * with its reflection in the bottom half, and pixels are not shared in
+	 * any other way
+	 *
+	 * @return {@link boolean}
+	 */
+	public boolean isMirroredVertically() {
+		return mirroredVertically;
+	}
+
+	/**
+	 * Sets every pixel in this grid back to Pixel.EMPTY with a depth of 0 so
+	 * the grid can be used again
+	 */
+	public void clear() {
+
+		if (!hasSharedPixels() && offset == 0 && stride == cols) {
+			Arrays.fill(values, 0, rows * cols, (byte) Pixel.EMPTY);
+			Arrays.fill(depths, 0, rows * cols, (short) 0);
+		} else {
+			for (int r = 0; r < rows; r++) {
+				for (int c = 0; c < cols; c++) {
+					values[slot(r, c)] = Pixel.EMPTY;
+					depths[slot(r, c)] = 0;
+				}
+			}
+		}
+
+		resetBounds();
+	}
+
+	/**
+	 * Gives this grid's storage to the current thread's
+	 * {@link PixelGridArena} to be used by grids made after it. Neither this
+	 * grid nor any other sharing its storage, such as a view made by crop,
+	 * can be used once it has been released. Releasing any more of them does
+	 * nothing, the storage is only given back once.
+	 */
+	public void release() {
+
+		if (!released[0]) {
+			released[0] = true;
+			PixelGridArena.get().giveBack(values);
+			PixelGridArena.get().giveBack(depths);
+		}
+	}
+
+	private void resetBounds() {
+		trackingBounds = trackBounds;
+		firstNonEmptyRow = rows;
+		lastNonEmptyRow = -1;
+		firstNonEmptyCol = cols;
+		lastNonEmptyCol = -1;
+	}
+
+	private int slot(int r, int c) {
+
+		if (rowMap != null) {
+			return (rowMap[firstRow + r] * stride) + colMap[firstCol + c];
+		}
+
+		int index = offset + (r * stride) + c;
+		return slots == null ? index : slots[index];
+	}
+
+	/**
+	 * Returns a view of the passed in region of this grid, no pixels are
+	 * copied so changes to the view are changes to this grid
+	 *
+	 * @param firstRow
+	 *            {@link int}
+	 * @param firstCol
+	 *            {@link int}
+	 * @param noOfRows
+	 *            {@link int}
+	 * @param noOfCols
+	 *            {@link int}
+	 * @return {@link PixelGrid}
+	 */
+	public PixelGrid crop(int firstRow, int firstCol, int noOfRows, int noOfCols) {
+
+		PixelGrid view = new PixelGrid(noOfRows, noOfCols, this.firstRow + firstRow, this.firstCol + firstCol, stride, slots, rowMap,
+				colMap, values, depths, released);
+
+		// the same amount cropped from both sides keeps a reflection centred
+		view.mirroredHorizontally = mirroredHorizontally && firstCol == cols - (firstCol + noOfCols);
+		view.mirroredVertically = mirroredVertically && firstRow == rows - (firstRow + noOfRows);
+
+		return view;
+	}
+
+	/**
+	 * Returns a grid twice as wide as this one where the right hand half is a
+	 * reflection of this grid. Both halves share the same pixels.
+	 *
+	 * @return {@link PixelGrid}
+	 */
+	public PixelGrid mirrorHorizontally() {
+
+		PixelGrid half = shareablePixels();
+
+		int fullCols = cols * 2;
+		int[] fullSlots = new int[rows * fullCols];
+
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				int slot = half.slot(r, c);
+				fullSlots[(r * fullCols) + c] = slot;
+				fullSlots[(r * fullCols) + (fullCols - 1) - c] = slot;
+			}
+		}
+
+		return new PixelGrid(rows, fullCols, 0, 0, fullCols, fullSlots, null, null, half.values, half.depths, half.released);
+	}
+
+	/**
+	 * Returns a grid twice as tall as this one where the bottom half is a
+	 * reflection of this grid. Both halves share the same pixels.
+	 *
+	 * @return {@link PixelGrid}
+	 */
+	public PixelGrid mirrorVertically() {
+
+		PixelGrid half = shareablePixels();
+
+		int fullRows = rows * 2;
+		int[] fullSlots = new int[fullRows * cols];
+
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				int slot = half.slot(r, c);
+				fullSlots[(r * cols) + c] = slot;
+				fullSlots[(((fullRows - 1) - r) * cols) + c] = slot;
+			}
+		}
+
+		return new PixelGrid(fullRows, cols, 0, 0, cols, fullSlots, null, null, half.values, half.depths, half.released);
+	}
+
+	/**
+	 * Returns the grid whose storage a mirrored grid should share. A grid
+	 * that does not already share pixels is copied first, so the mirrored
+	 * grid holds on to no more storage than it needs and never to the storage
+	 * of a larger grid this one is a view of.
+	 *
+	 * @return {@link PixelGrid}
+	 */
+	private PixelGrid shareablePixels() {
+
+		if (hasSharedPixels()) {
+			return this;
+		}
+
+		PixelGrid copy = new PixelGrid(rows, cols);
+
+		for (int r = 0; r < rows; r++) {
+			System.arraycopy(values, offset + (r * stride), copy.values, r * cols, cols);
+			System.arraycopy(depths, offset + (r * stride), copy.depths, r * cols, cols);
+		}
+
+		return copy;
+	}
+
+	/**
+	 * Returns a grid with the passed in amount of empty rows and columns split
+	 * either side of this grid's pixels, which are shared with this grid.
+	 *
+	 * @param extendAmount
+	 *            {@link int}
+	 * @return {@link PixelGrid}
+	 */
+	public PixelGrid extend(int extendAmount) {
+
+		int newRows = rows + extendAmount;
+		int newCols = cols + extendAmount;
+		int inset = extendAmount / 2;
+
+		if (!hasSharedPixels()) {
+			// nothing is shared so the pixels can simply be copied across
+			PixelGrid extendedGrid = new PixelGrid(newRows, newCols);
+
+			for (int r = 0; r < rows; r++) {
+				int from = offset + (r * stride);
+				int to = ((r + inset) * newCols) + inset;
+				System.arraycopy(values, from, extendedGrid.values, to, cols);
+				System.arraycopy(depths, from, extendedGrid.depths, to, cols);
+			}
+
+			return extendedGrid;
+		}
+
+		// keep the existing slots so shared pixels stay shared, the new empty
+		// pixels get slots of their own after them
+		int nextSlot = values.length;
+		int[] newSlots = new int[newRows * newCols];
+
+		for (int r = 0; r < newRows; r++) {
+			for (int c = 0; c < newCols; c++) {
+				int r1 = r - inset;
+				int c1 = c - inset;
+
+				if (r1 >= 0 && r1 < rows && c1 >= 0 && c1 < cols) {
+					newSlots[(r * newCols) + c] = slot(r1, c1);
+				} else {
+					newSlots[(r * newCols) + c] = nextSlot++;
+				}
+			}
+		}
+
+		byte[] newValues = PixelGridArena.get().takeValues(nextSlot);
+		short[] newDepths = PixelGridArena.get().takeDepths(nextSlot);
+		System.arraycopy(values, 0, newValues, 0, values.length);
+		System.arraycopy(depths, 0, newDepths, 0, depths.length);
+
+		return new PixelGrid(newRows, newCols, 0, 0, newCols, newSlots, null, null, newValues, newDepths, new boolean[1]);
+	}
+
+	/**
+	 * Returns a grid made by mirroring this grid horizontally and vertically
+	 * the passed in number of times and then extending it by an even amount.
+	 * Pixels are shared just as they would be by calling mirrorHorizontally,
+	 * mirrorVertically and extend in turn, and the new empty pixels are shared
+	 * with their reflections as well.
+	 *
+	 * Only this grid's pixels and the new empty pixels on the top and left
+	 * are stored, every other row and column is mapped onto the one it is a
+	 * reflection of. Nothing the size of the whole grid is allocated.
+	 *
+	 * @param noOfHorizontalMirrors
+	 *            {@link int}
+	 * @param noOfVerticalMirrors
+	 *            {@link int}
+	 * @param extendAmount
+	 *            {@link int}
+	 * @return {@link PixelGrid}
+	 */
+	public PixelGrid mirrorAndExtend(int noOfHorizontalMirrors, int noOfVerticalMirrors, int extendAmount) {
+
+		if (hasSharedPixels() || extendAmount % 2 != 0) {
+			// already shared pixels have to stay shared, and an odd amount
+			// can't be split evenly either side, so go step by step
+			PixelGrid grid = this;
+
+			for (int i = 0; i < noOfHorizontalMirrors; i++) {
+				grid = grid.mirrorHorizontally();
+			}
+
+			for (int i = 0; i < noOfVerticalMirrors; i++) {
+				grid = grid.mirrorVertically();
+			}
+
+			return grid.extend(extendAmount);
+		}
+
+		if (noOfHorizontalMirrors == 0 && noOfVerticalMirrors == 0) {
+			return extend(extendAmount);
+		}
+
+		int inset = extendAmount / 2;
+
+		int[] newRowMap = mirrorMap(rows, noOfVerticalMirrors, extendAmount);
+		int[] newColMap = mirrorMap(cols, noOfHorizontalMirrors, extendAmount);
+
+		int storedRows = noOfVerticalMirrors == 0 ? rows + extendAmount : rows + inset;
+		int storedCols = noOfHorizontalMirrors == 0 ? cols + extendAmount : cols + inset;
+
+		byte[] newValues = PixelGridArena.get().takeValues(storedRows * storedCols);
+		short[] newDepths = PixelGridArena.get().takeDepths(storedRows * storedCols);
+
+		for (int r = 0; r < rows; r++) {
+			int from = offset + (r * stride);
+			int to = ((r + inset) * storedCols) + inset;
+			System.arraycopy(values, from, newValues, to, cols);
+			System.arraycopy(depths, from, newDepths, to, cols);
+		}
+
+		PixelGrid result = new PixelGrid(newRowMap.length, newColMap.length, 0, 0, storedCols, null, newRowMap, newColMap,
+				newValues, newDepths, new boolean[1]);
+
+		// mirroring twice either way shares pixels with more than their
+		// reflection
+		boolean symmetric = noOfHorizontalMirrors <= 1 && noOfVerticalMirrors <= 1;
+		result.mirroredHorizontally = symmetric && noOfHorizontalMirrors == 1;
+		result.mirroredVertically = symmetric && noOfVerticalMirrors == 1;
+
+		return result;
+	}
+
+	/**
+	 * Returns the stored row or column for each row or column of a grid of
+	 * the passed in size once mirrored and extended, the extension being
+	 * split evenly either side
+	 *
+	 * @param size
+	 *            {@link int}
+	 * @param noOfMirrors
+	 *            {@link int}
+	 * @param extendAmount
+	 *            {@link int}
+	 * @return {@link int}[]
+	 */
+	private static int[] mirrorMap(int size, int noOfMirrors, int extendAmount) {
+
+		int newSize = (size << noOfMirrors) + extendAmount;
+		int inset = extendAmount / 2;
+
+		int[] map = new int[newSize];
+
+		for (int i = 0; i < newSize; i++) {
+
+			if (noOfMirrors == 0) {
+				map[i] = i;
+			} else {
+				// everything past the middle is a reflection of what is
+				// before it, extension included
+				int reflected = i < newSize / 2 ? i : (newSize - 1) - i;
+				int mirrored = reflected - inset;
+
+				map[i] = mirrored < 0 ? reflected : inset + unmirror(mirrored, size, noOfMirrors - 1);
+			}
+		}
+
+		return map;
+	}
+
+	/**
+	 * Returns the index in the original grid that the passed in index of a
+	 * grid mirrored the passed in number of times is a reflection of
+	 *
+	 * @param index
+	 *            {@link int}
+	 * @param size
+	 *            {@link int} size of the original grid
+	 * @param noOfMirrors
+	 *            {@link int}
+	 * @return {@link int}
+	 */
+	private static int unmirror(int index, int size, int noOfMirrors) {
+
+		for (int mirroredSize = size << noOfMirrors; mirroredSize > size; mirroredSize /= 2) {
+			if (index >= mirroredSize / 2) {
+				index = (mirroredSize - 1) - index;
+			}
+		}
+
+		return index;
+	}
+
+	/**
+	 * Returns this grid as {@link Pixel} objects, cells that share a pixel in
+	 * this grid share the same {@link Pixel} in the result
+	 *
+	 * @return {@link Pixel}[][]
+	 */
+	public Pixel[][] toPixels() {
+
+		Pixel[][] grid = new Pixel[rows][cols];
+		Pixel[] pixelsBySlot = new Pixel[values.length];
+
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				int slot = slot(r, c);
+
+				if (pixelsBySlot[slot] == null) {
+					pixelsBySlot[slot] = new Pixel();
+					pixelsBySlot[slot].value = values[slot];
+					pixelsBySlot[slot].depth = depths[slot];
+				}
+
+				grid[r][c] = pixelsBySlot[slot];
+			}
+		}
+
+		return grid;
+	}
+
+	/**
+	 * Returns the passed in {@link Pixel} grid as a {@link PixelGrid}, cells
+	 * that share a {@link Pixel} object share a pixel in the result
+	 *
+	 * @param grid
+	 *            {@link Pixel}[][]
+	 * @return {@link PixelGrid}
+	 */
+	public static PixelGrid fromPixels(Pixel[][] grid) {
+
+		int rows = grid.length;
+		int cols = grid[0].length;
+
+		Map<Pixel, Integer> slotsByPixel = new IdentityHashMap<Pixel, Integer>();
+		int[] slots = new int[rows * cols];
+
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				Integer slot = slotsByPixel.get(grid[r][c]);
+
+				if (slot == null) {
+					slot = slotsByPixel.size();
+					slotsByPixel.put(grid[r][c], slot);
+				}
+
+				slots[(r * cols) + c] = slot;
+			}
+		}
+
+		byte[] values = new byte[slotsByPixel.size()];
+		short[] depths = new short[slotsByPixel.size()];
+
+		for (Map.Entry<Pixel, Integer> entry : slotsByPixel.entrySet()) {
+			values[entry.getValue()] = (byte) entry.getKey().value;
+			depths[entry.getValue()] = (short) entry.getKey().depth;
+		}
+
+		// every cell has its own pixel, slots are in scan order
+		if (slotsByPixel.size() == rows * cols) {
+			slots = null;
+		}
+
+		return new PixelGrid(rows, cols, 0, 0, cols, slots, null, null, values, depths, new boolean[1]);
+	}
+}
@@ -0,0 +1,160 @@
+package ajb.domain;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the storage of released grids so that the grids made after them on
+ * the same thread can reuse it rather than allocating new arrays. Every
+ * thread has an arena of its own so nothing here needs to be synchronised.
+ *
+ * Storage is kept in size classes of powers of two, which is as fine as it
+ * needs to be for the SMALL, MEDIUM and LARGE grids to each find storage
+ * released by an asset of the same size. Only a few arrays of each class are
+ * kept, anything released beyond that is left to be garbage collected.
+ *
+ * Nothing is reused until grids are released, see {@link PixelGrid#release()}.
+ */
+public class PixelGridArena {
+
+	private static final int NO_OF_SIZE_CLASSES = 31;
+	private static final int MAX_ARRAYS_PER_SIZE_CLASS = 4;
+
+	private static final ThreadLocal<PixelGridArena> ARENAS = new ThreadLocal<PixelGridArena>() {
+		@Override
+		protected PixelGridArena initialValue() {
+			return new PixelGridArena();
+		}
+	};
+
+	private final List<ArrayDeque<byte[]>> values = new ArrayList<ArrayDeque<byte[]>>(NO_OF_SIZE_CLASSES);
+	private final List<ArrayDeque<short[]>> depths = new ArrayList<ArrayDeque<short[]>>(NO_OF_SIZE_CLASSES);
+
+	private PixelGridArena() {
+
+		for (int i = 0; i < NO_OF_SIZE_CLASSES; i++) {
+			values.add(new ArrayDeque<byte[]>(MAX_ARRAYS_PER_SIZE_CLASS));
+			depths.add(new ArrayDeque<short[]>(MAX_ARRAYS_PER_SIZE_CLASS));
+		}
+	}
+
+	/**
+	 * Returns the arena of the current thread
+	 *
+	 * @return {@link PixelGridArena}
+	 */
+	public static PixelGridArena get() {
+		return ARENAS.get();
+	}
+
+	/**
+	 * Returns an array of at least the passed in size whose first size
+	 * values are all Pixel.EMPTY
+	 *
+	 * @param size
+	 *            {@link int}
+	 * @return {@link byte}[]
+	 */
+	public byte[] takeValues(int size) {
+
+		byte[] array = values.get(sizeClass(size)).poll();
+
+		if (array == null) {
+			return new byte[1 << sizeClass(size)];
+		}
+
+		Arrays.fill(array, 0, size, (byte) Pixel.EMPTY);
+
+		return array;
+	}
+
+	/**
+	 * Returns an array of at least the passed in size whose first size
+	 * depths are all 0
+	 *
+	 * @param size
+	 *            {@link int}
+	 * @return {@link short}[]
+	 */
+	public short[] takeDepths(int size) {
+
+		short[] array = depths.get(sizeClass(size)).poll();
+
+		if (array == null) {
+			return new short[1 << sizeClass(size)];
+		}
+
+		Arrays.fill(array, 0, size, (short) 0);
+
+		return array;
+	}
+
+	/**
+	 * Keeps the passed in array to be handed out again. Arrays whose length
+	 * isn't a power of two can't have come from an arena and are ignored, as
+	 * is an array that is already being kept.
+	 *
+	 * @param array
+	 *            {@link byte}[]
+	 */
+	public void giveBack(byte[] array) {
+
+		if (isSizeClass(array.length)) {
+			keep(values.get(sizeClass(array.length)), array);
+		}
+	}
+
+	/**
+	 * Keeps the passed in array to be handed out again. Arrays whose length
+	 * isn't a power of two can't have come from an arena and are ignored, as
+	 * is an array that is already being kept.
+	 *
+	 * @param array
+	 *            {@link short}[]
+	 */
+	public void giveBack(short[] array) {
+
+		if (isSizeClass(array.length)) {
+			keep(depths.get(sizeClass(array.length)), array);
+		}
+	}
+
+	/**
+	 * Lets go of all the storage kept by this arena
+	 */
+	public void clear() {
+
+		for (int i = 0; i < NO_OF_SIZE_CLASSES; i++) {
+			values.get(i).clear();
+			depths.get(i).clear();
+		}
+	}
+
+	// handing the same array out twice would have two grids share storage, so
+	// an array already kept is not kept again
+	private static <T> void keep(ArrayDeque<T> kept, T array) {
+
+		if (kept.size() >= MAX_ARRAYS_PER_SIZE_CLASS) {
+			return;
+		}
+
+		for (T keptArray : kept) {
+			if (keptArray == array) {
+				return;
+			}
+		}
+
+		kept.push(array);
+	}
+
+	// the smallest power of two that is at least size
+	private static int sizeClass(int size) {
+		return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+	}
+
+	private static boolean isSizeClass(int length) {
+		return length > 0 && (length & (length - 1)) == 0;
+	}
+}
@@ -0,0 +1,5 @@
+package ajb.enums;
+
+public enum AssetType {
+	ASTEROID, VESSEL, STATION, TILE, CONSOLE
+}
@@ -0,0 +1,5 @@
+package ajb.enums;
+
+public enum GlowMode {
+	GAUSSIAN, BOX
+}
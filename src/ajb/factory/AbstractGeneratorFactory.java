@@ -0,0 +1,142 @@
+package ajb.factory;
+
+import java.awt.Point;
+
+import ajb.domain.PixelGrid;
+import ajb.utils.PixelGridUtils;
+
+/**
+ * The retry loop every factory shares. Candidate grids are made one attempt
+ * at a time until one passes validation or the budget runs out, with each
+ * request counted in the stats and storage handed back for reuse. A factory
+ * only supplies how a candidate is made and checked, through
+ * {@link #attempt(PixelGrid, GenerationContext)}.
+ *
+ * Everything a call works with is held in its context, the factory itself just
+ * keeps its budget and stats which are both safe to share, so a single
+ * instance can be used by any number of threads at once.
+ *
+ * @param <C>
+ *            the context each call works with
+ */
+public abstract class AbstractGeneratorFactory<C extends GenerationContext> {
+
+	private volatile GenerationBudget budget = GenerationBudget.UNLIMITED;
+	private final GenerationStats stats = new GenerationStats();
+
+	public GenerationBudget getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Sets the limit on attempts and time spent generating each asset, by
+	 * default there is no limit
+	 *
+	 * @param budget
+	 *            {@link GenerationBudget}
+	 */
+	public void setBudget(GenerationBudget budget) {
+		this.budget = budget;
+	}
+
+	public GenerationStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Makes attempts until one gives a grid that passed validation, which is
+	 * returned with its depth set. Returns null if the budget runs out first.
+	 *
+	 * @param context
+	 *            the context for this call
+	 * @return {@link PixelGrid}
+	 */
+	protected final PixelGrid generate(C context) {
+
+		// the base grid is cleared and walked again for each attempt
+		PixelGrid baseGrid = newBaseGrid(context);
+
+		GenerationBudget budget = this.budget;
+		long startTime = System.nanoTime();
+		int noOfAttempts = 0;
+
+		while (budget.allowsAttempt(noOfAttempts, startTime)) {
+
+			noOfAttempts++;
+
+			PixelGrid grid = attempt(baseGrid, context);
+
+			// depth plays no part in validation so is only set once a grid
+			// has passed
+			if (grid != null) {
+				PixelGridUtils.setPixelDepth(grid);
+				stats.recordAsset(noOfAttempts);
+				baseGrid.release();
+				return grid;
+			}
+		}
+
+		stats.recordFailure(noOfAttempts);
+		baseGrid.release();
+
+		return null;
+	}
+
+	/**
+	 * Returns the grid every attempt in a call walks. By default it keeps
+	 * track of the bounds of the walk so flooring needs no scan.
+	 *
+	 * @param context
+	 *            the context for this call
+	 * @return {@link PixelGrid}
+	 */
+	protected PixelGrid newBaseGrid(C context) {
+		return new PixelGrid(context.rows, context.cols, true);
+	}
+
+	/**
+	 * Clears and walks the base grid, then builds a candidate from it.
+	 * Returns the candidate if it passes validation, otherwise hands it to
+	 * {@link #reject(PixelGrid)} and returns null.
+	 *
+	 * @param baseGrid
+	 *            {@link PixelGrid}
+	 * @param context
+	 *            the context for this call
+	 * @return {@link PixelGrid}
+	 */
+	protected abstract PixelGrid attempt(PixelGrid baseGrid, C context);
+
+	/**
+	 * Releases a candidate that failed validation and returns null. Rejected
+	 * grids share nothing with the base grid, so their storage can go straight
+	 * back to be used by the next attempt.
+	 *
+	 * @param grid
+	 *            {@link PixelGrid}
+	 * @return null
+	 */
+	protected static PixelGrid reject(PixelGrid grid) {
+		grid.release();
+		return null;
+	}
+
+	/**
+	 * Keeps hold of the pixel that scanning the grid down top (stopping
+	 * before the first row) and left to right would find last i.e. the top
+	 * most row then the right most column, so the grid never needs scanning
+	 *
+	 * @param lastFilledPixel
+	 *            {@link Point}
+	 * @param x
+	 *            {@link int}
+	 * @param y
+	 *            {@link int}
+	 */
+	protected static void trackTopMostFilledPixel(Point lastFilledPixel, int x, int y) {
+
+		if (x > 0 && (lastFilledPixel.x == -1 || x < lastFilledPixel.x || (x == lastFilledPixel.x && y > lastFilledPixel.y))) {
+			lastFilledPixel.setLocation(x, y);
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package ajb.factory;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import ajb.domain.PixelGrid;
+import ajb.enums.AssetSize;
+
+/**
+ * A lazy, possibly endless run of seeded assets. Nothing is generated until
+ * it is asked for and only the next asset is held at a time, so consumers can
+ * work through any number of assets one by one without keeping them all.
+ *
+ * Asset i is made from the seed seedBase + i, so every iterator over the same
+ * stream gives the same assets in the same order and they line up with a
+ * {@link BatchResult} from the same seed base. Any asset whose budget runs out
+ * is null, as it is in a {@link BatchResult}, rather than being skipped.
+ */
+public class AssetStream implements Iterable<PixelGrid> {
+
+	/**
+	 * Makes the asset for a single seed
+	 */
+	private interface SeededCreator {
+		PixelGrid create(long seed);
+	}
+
+	private final SeededCreator creator;
+	private final long seedBase;
+	private final long limit;
+
+	private AssetStream(SeededCreator creator, long seedBase, long limit) {
+		this.creator = creator;
+		this.seedBase = seedBase;
+		this.limit = limit;
+	}
+
+	public static AssetStream of(final AsteroidGeneratorFactory factory, final AssetSize size, long seedBase) {
+		return new AssetStream(new SeededCreator() {
+			@Override
+			public PixelGrid create(long seed) {
+				return factory.create(size, seed);
+			}
+		}, seedBase, -1);
+	}
+
+	public static AssetStream of(final VesselGeneratorFactory factory, final AssetSize size, long seedBase) {
+		return new AssetStream(new SeededCreator() {
+			@Override
+			public PixelGrid create(long seed) {
+				return factory.create(size, seed);
+			}
+		}, seedBase, -1);
+	}
+
+	public static AssetStream of(final StationGeneratorFactory factory, final AssetSize size, long seedBase) {
+		return new AssetStream(new SeededCreator() {
+			@Override
+			public PixelGrid create(long seed) {
+				return factory.create(size, seed);
+			}
+		}, seedBase, -1);
+	}
+
+	public static AssetStream of(final TileGeneratorFactory factory, long seedBase) {
+		return new AssetStream(new SeededCreator() {
+			@Override
+			public PixelGrid create(long seed) {
+				return factory.create(seed);
+			}
+		}, seedBase, -1);
+	}
+
+	public static AssetStream of(final ConsoleGeneratorFactory factory, long seedBase) {
+		return new AssetStream(new SeededCreator() {
+			@Override
+			public PixelGrid create(long seed) {
+				return factory.create(seed);
+			}
+		}, seedBase, -1);
+	}
+
+	/**
+	 * Returns a stream of at most the passed in number of assets, the first
+	 * ones this stream would give
+	 *
+	 * @param noOfAssets
+	 *            {@link long}
+	 * @return {@link AssetStream}
+	 */
+	public AssetStream limit(long noOfAssets) {
+
+		if (noOfAssets < 0) {
+			throw new IllegalArgumentException("noOfAssets must not be negative");
+		}
+
+		return new AssetStream(creator, seedBase, limit < 0 ? noOfAssets : Math.min(limit, noOfAssets));
+	}
+
+	/**
+	 * Returns an iterator that generates each asset as it is asked for,
+	 * starting again from the seed base. Each call to next makes exactly one
+	 * attempt at the next seed, giving null if its budget runs out.
+	 *
+	 * @return {@link Iterator}
+	 */
+	@Override
+	public Iterator<PixelGrid> iterator() {
+
+		return new Iterator<PixelGrid>() {
+
+			private long noOfAssets = 0;
+
+			@Override
+			public boolean hasNext() {
+
+				return limit < 0 || noOfAssets < limit;
+			}
+
+			@Override
+			public PixelGrid next() {
+
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				// nothing is generated ahead, so asking hasNext costs nothing
+				// and a null asset is given in its place like any other
+				return creator.create(seedBase + noOfAssets++);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -1,63 +1,72 @@
 package ajb.factory;
 
-import java.awt.Point;
-
 import ajb.domain.Pixel;
+import ajb.domain.PixelGrid;
 import ajb.enums.AssetSize;
 import ajb.utils.PixelGridUtils;
+import ajb.utils.RandomSources;
+import ajb.utils.RandomWalker;
+import ajb.utils.SeededRandomSource;
+
+/**
+ * Generates asteroids, see {@link AbstractGeneratorFactory} for how attempts are
+ * made and why one instance can be shared between threads.
+ */
+public class AsteroidGeneratorFactory extends AbstractGeneratorFactory<GenerationContext> {
+
+	/**
+	 * Generates candidate grids until one passes validation. Returns null if
+	 * the budget runs out first. The grid can be released once finished with
+	 * so its storage is reused by the next asset made on the same thread.
+	 *
+	 * Asteroids have no steps for AssetSize.RANDOM, so nothing is walked and
+	 * IllegalArgumentException is thrown as the empty grid can't be floored.
+	 *
+	 * @param size
+	 *            {@link AssetSize}
+	 * @return {@link PixelGrid}
+	 */
+	public PixelGrid create(AssetSize size) {
+
+		return generate(GenerationContext.forSize(size, RandomSources.current()));
+	}
 
-public class AsteroidGeneratorFactory {
+	/**
+	 * As {@link #create(AssetSize)} but every random choice comes from the
+	 * passed in seed, so the same seed and size always give the same asset
+	 * whichever thread it is made on and whatever else is being made at the
+	 * same time. With a time limit in the budget the result is either that
+	 * asset or null.
+	 *
+	 * @param size
+	 *            {@link AssetSize}
+	 * @param seed
+	 *            {@link long}
+	 * @return {@link PixelGrid}
+	 */
+	public PixelGrid create(AssetSize size, long seed) {
+
+		return generate(GenerationContext.forSize(size, new SeededRandomSource(seed)));
+	}
 
-	private int rows = 0;
-	private int cols = 0;
+	@Override
+	protected PixelGrid attempt(PixelGrid baseGrid, GenerationContext context) {
 
-	public Pixel[][] create(AssetSize size) {
+		int noOfFilledPixels = createBaseGrid(baseGrid, context);
 
-		if (size.equals(AssetSize.RANDOM)) {
-			rows = 300;
-			cols = 300;
-		} else if (size.equals(AssetSize.SMALL)) {
-			rows = 100;
-			cols = 100;
-		} else if (size.equals(AssetSize.MEDIUM)) {
-			rows = 200;
-			cols = 200;
-		} else if (size.equals(AssetSize.LARGE)) {
-			rows = 300;
-			cols = 300;
-		}		
-		
-		Pixel[][] grid = createBaseGrid(size);
-		grid = PixelGridUtils.floor(grid);
-		grid = PixelGridUtils.addBorders(grid);
-		grid = PixelGridUtils.floor(grid);
-		PixelGridUtils.fillEmptySurroundedPixelsInGrid(grid);
-		PixelGridUtils.setPixelDepth(grid);
-
-		if (validateGrid(grid)) {
-			return grid;
-		} else {
-			return create(size);
-		}
+		PixelGrid grid = PixelGridUtils.mirrorAndAddBorders(baseGrid, true, 0, 0);
+		int noOfSecondaryPixels = PixelGridUtils.fillEmptySurroundedPixelsInGrid(grid);
+
+		// borders and flooring never touch filled pixels and there is no
+		// noise, so the walk and the fill have already counted everything
+		// validation needs
+		return validateGrid(noOfFilledPixels, noOfSecondaryPixels) ? grid : reject(grid);
 	}
 
-	private boolean validateGrid(Pixel[][] grid) {
+	private boolean validateGrid(int noOfFilledPixels, int noOfSecondaryPixels) {
 
 		boolean result = true;
 
-		int noOfFilledPixels = 0;
-		int noOfSecondaryPixels = 0;
-
-		for (int x = 0; x < grid.length; x++) {
-			for (int y = 0; y < grid[0].length; y++) {
-				if (grid[x][y].value == Pixel.FILLED) {
-					noOfFilledPixels++;
-				} else if (grid[x][y].value == Pixel.SECONDARY) {
-					noOfSecondaryPixels++;
-				}
-			}
-		}
-
 		if (noOfSecondaryPixels == 0) {
 			result = false;
 		}
@@ -69,32 +78,49 @@ public class AsteroidGeneratorFactory {
 		return result;
 	}
 
-	private Pixel[][] createBaseGrid(AssetSize size) {
+	/**
+	 * Walks the passed in grid and returns the number of pixels filled
+	 *
+	 * @param grid
+	 *            {@link PixelGrid}
+	 * @param context
+	 *            {@link GenerationContext}
+	 * @return {@link int}
+	 */
+	private int createBaseGrid(PixelGrid grid, GenerationContext context) {
 
-		Pixel[][] grid = new Pixel[rows][cols];
-		PixelGridUtils.initEmptyGrid(grid, rows, cols);
+		grid.clear();
 
-		Point point = new Point(rows / 2, cols / 2);
+		RandomWalker walker = new RandomWalker(grid.getRows(), grid.getCols(), context.random);
+		walker.moveTo(context.rows / 2, context.cols / 2);
 
-		int steps = calculateNoOfSteps(size);
-		int subSteps = calculateNoOfSubSteps(size);
+		int steps = calculateNoOfSteps(context.size);
+		int subSteps = calculateNoOfSubSteps(context.size);
+		int noOfFilledPixels = 0;
 
 		for (int i = 0; i < steps; i++) {
 			for (int y = 0; y < subSteps; y++) {
-				point = processPoint(point, grid);
+				if (processPoint(walker, grid)) {
+					noOfFilledPixels++;
+				}
 			}
 		}
 
-		return grid;
+		return noOfFilledPixels;
 	}
 
-	private Point processPoint(Point point, Pixel[][] grid) {
+	private boolean processPoint(RandomWalker walker, PixelGrid grid) {
 
-		if (grid[point.x][point.y].value == Pixel.EMPTY) {
-			grid[point.x][point.y].value = Pixel.FILLED;
+		boolean filled = false;
+
+		if (grid.getValue(walker.getX(), walker.getY()) == Pixel.EMPTY) {
+			grid.setValue(walker.getX(), walker.getY(), Pixel.FILLED);
+			filled = true;
 		}
 
-		return PixelGridUtils.getRandomAdjacentPoint(point, grid);
+		walker.step();
+
+		return filled;
 	}
 	
 	private int calculateNoOfSteps(AssetSize size) {
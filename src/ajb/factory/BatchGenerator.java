@@ -0,0 +1,259 @@
+package ajb.factory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ajb.domain.PixelGrid;
+import ajb.enums.AssetSize;
+import ajb.enums.AssetType;
+
+/**
+ * Generates batches of seeded assets across a pool of threads.
+ *
+ * Each worker takes the next seed from a shared counter as soon as it has
+ * finished its last asset, so a worker that gets a run of quick assets simply
+ * goes on to take more of them and no thread sits idle while others still
+ * have a queue of work. Every asset is made from its own seed, so a batch is
+ * the same whatever the number of threads and whichever thread made what.
+ *
+ * One factory of each type is shared by all the workers.
+ */
+public class BatchGenerator {
+
+	private final ExecutorService executor;
+	private final int parallelism;
+	private final boolean ownsExecutor;
+
+	private final AsteroidGeneratorFactory asteroidFactory = new AsteroidGeneratorFactory();
+	private final VesselGeneratorFactory vesselFactory = new VesselGeneratorFactory();
+	private final StationGeneratorFactory stationFactory = new StationGeneratorFactory();
+	private final TileGeneratorFactory tileFactory = new TileGeneratorFactory();
+	private final ConsoleGeneratorFactory consoleFactory = new ConsoleGeneratorFactory();
+
+	/**
+	 * Generates on a pool of its own with a thread per available processor,
+	 * which should be shut down once finished with
+	 */
+	public BatchGenerator() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Generates on a pool of its own with the passed in number of threads,
+	 * which should be shut down once finished with
+	 *
+	 * @param parallelism
+	 *            {@link int}
+	 */
+	public BatchGenerator(int parallelism) {
+		this(Executors.newFixedThreadPool(checkParallelism(parallelism), new GeneratorThreadFactory()), parallelism, true);
+	}
+
+	/**
+	 * Generates on the passed in executor, keeping up to parallelism workers
+	 * busy on it per batch. The executor is left running by
+	 * {@link #shutdown()}.
+	 *
+	 * @param executor
+	 *            {@link ExecutorService}
+	 * @param parallelism
+	 *            {@link int}
+	 */
+	public BatchGenerator(ExecutorService executor, int parallelism) {
+		this(executor, checkParallelism(parallelism), false);
+	}
+
+	private BatchGenerator(ExecutorService executor, int parallelism, boolean ownsExecutor) {
+		this.executor = executor;
+		this.parallelism = parallelism;
+		this.ownsExecutor = ownsExecutor;
+	}
+
+	/**
+	 * Sets the budget used for every asset, by default there is no limit
+	 *
+	 * @param budget
+	 *            {@link GenerationBudget}
+	 */
+	public void setBudget(GenerationBudget budget) {
+		asteroidFactory.setBudget(budget);
+		vesselFactory.setBudget(budget);
+		stationFactory.setBudget(budget);
+		tileFactory.setBudget(budget);
+		consoleFactory.setBudget(budget);
+	}
+
+	/**
+	 * Returns the running totals of the factory used for the passed in type
+	 *
+	 * @param type
+	 *            {@link AssetType}
+	 * @return {@link GenerationStats}
+	 */
+	public GenerationStats getStats(AssetType type) {
+
+		switch (type) {
+		case ASTEROID:
+			return asteroidFactory.getStats();
+		case VESSEL:
+			return vesselFactory.getStats();
+		case STATION:
+			return stationFactory.getStats();
+		case TILE:
+			return tileFactory.getStats();
+		case CONSOLE:
+			return consoleFactory.getStats();
+		default:
+			throw new IllegalArgumentException("unknown asset type " + type);
+		}
+	}
+
+	/**
+	 * Generates count assets from the seeds seedBase to seedBase + count - 1,
+	 * returning them in seed order. Tiles and consoles come in one size only
+	 * so ignore the size.
+	 *
+	 * @param type
+	 *            {@link AssetType}
+	 * @param size
+	 *            {@link AssetSize}
+	 * @param count
+	 *            {@link int}
+	 * @param seedBase
+	 *            {@link long}
+	 * @return {@link BatchResult}
+	 */
+	public BatchResult generateBatch(final AssetType type, final AssetSize size, final int count, final long seedBase) {
+
+		if (count < 0) {
+			throw new IllegalArgumentException("count must not be negative");
+		}
+
+		final PixelGrid[] grids = new PixelGrid[count];
+		final AtomicInteger nextIndex = new AtomicInteger();
+		final AtomicInteger noOfFailures = new AtomicInteger();
+
+		long startTime = System.nanoTime();
+
+		int noOfWorkers = Math.min(parallelism, count);
+		List<Future<Void>> workers = new ArrayList<Future<Void>>(noOfWorkers);
+
+		for (int w = 0; w < noOfWorkers; w++) {
+			workers.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+
+					int i;
+
+					while ((i = nextIndex.getAndIncrement()) < count) {
+
+						PixelGrid grid = create(type, size, seedBase + i);
+
+						if (grid == null) {
+							noOfFailures.incrementAndGet();
+						}
+
+						grids[i] = grid;
+					}
+
+					return null;
+				}
+			}));
+		}
+
+		waitFor(workers, nextIndex, count);
+
+		return new BatchResult(Arrays.asList(grids), noOfFailures.get(), System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Shuts down the pool if this generator made it, an executor passed in is
+	 * left for its owner to shut down
+	 */
+	public void shutdown() {
+
+		if (ownsExecutor) {
+			executor.shutdown();
+		}
+	}
+
+	private PixelGrid create(AssetType type, AssetSize size, long seed) {
+
+		switch (type) {
+		case ASTEROID:
+			return asteroidFactory.create(size, seed);
+		case VESSEL:
+			return vesselFactory.create(size, seed);
+		case STATION:
+			return stationFactory.create(size, seed);
+		case TILE:
+			return tileFactory.create(seed);
+		case CONSOLE:
+			return consoleFactory.create(seed);
+		default:
+			throw new IllegalArgumentException("unknown asset type " + type);
+		}
+	}
+
+	/**
+	 * Waits for every worker to finish. If one fails or the wait is
+	 * interrupted the rest are stopped from taking any more seeds.
+	 */
+	private void waitFor(List<Future<Void>> workers, AtomicInteger nextIndex, int count) {
+
+		try {
+			for (Future<Void> worker : workers) {
+				worker.get();
+			}
+		} catch (InterruptedException e) {
+			nextIndex.set(count);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while generating batch", e);
+		} catch (ExecutionException e) {
+			nextIndex.set(count);
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	private static int checkParallelism(int parallelism) {
+
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+
+		return parallelism;
+	}
+
+	/**
+	 * Daemon threads, so a generator that is never shut down doesn't keep the
+	 * JVM running
+	 */
+	private static class GeneratorThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger noOfThreads = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+
+			Thread thread = new Thread(runnable, "asset-generator-" + noOfThreads.incrementAndGet());
+			thread.setDaemon(true);
+
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package ajb.factory;
+
+import java.util.List;
+
+import ajb.domain.PixelGrid;
+
+/**
+ * The assets made by one call to
+ * {@link BatchGenerator#generateBatch(ajb.enums.AssetType, ajb.enums.AssetSize, int, long)}
+ * along with how long the batch took.
+ *
+ * Grids are in seed order, the grid at index i was made from the seed base
+ * plus i. Any asset whose budget ran out is null.
+ */
+public class BatchResult {
+
+	private final List<PixelGrid> grids;
+	private final int noOfFailures;
+	private final long elapsedNanos;
+
+	public BatchResult(List<PixelGrid> grids, int noOfFailures, long elapsedNanos) {
+		this.grids = grids;
+		this.noOfFailures = noOfFailures;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public List<PixelGrid> getGrids() {
+		return grids;
+	}
+
+	public int getNoOfAssets() {
+		return grids.size() - noOfFailures;
+	}
+
+	public int getNoOfFailures() {
+		return noOfFailures;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the number of assets made per second of wall clock time
+	 *
+	 * @return {@link double}
+	 */
+	public double getAssetsPerSecond() {
+		return elapsedNanos == 0 ? 0 : getNoOfAssets() * 1000000000.0 / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("assets: %d, failures: %d, time: %.1f ms, assets per second: %.1f", getNoOfAssets(),
+				getNoOfFailures(), elapsedNanos / 1000000.0, getAssetsPerSecond());
+	}
+}
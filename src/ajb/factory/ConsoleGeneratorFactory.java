@@ -3,55 +3,93 @@ package ajb.factory;
 import java.awt.Point;
 
 import ajb.domain.Pixel;
-import ajb.random.RandomInt;
+import ajb.domain.PixelGrid;
 import ajb.utils.PixelGridUtils;
+import ajb.utils.RandomSource;
+import ajb.utils.RandomSources;
+import ajb.utils.RandomWalker;
+import ajb.utils.SeededRandomSource;
 
-public class ConsoleGeneratorFactory {
+/**
+ * Generates consoles, see {@link AbstractGeneratorFactory} for how attempts are
+ * made and why one instance can be shared between threads.
+ */
+public class ConsoleGeneratorFactory extends AbstractGeneratorFactory<GenerationContext> {
 
 	private final int ROWS = 9;
 	private final int COLS = 9;
+	/**
+	 * Generates candidate grids until one passes validation. Returns null if
+	 * the budget runs out first. The grid can be released once finished with
+	 * so its storage is reused by the next asset made on the same thread.
+	 *
+	 * @return {@link PixelGrid}
+	 */
+	public PixelGrid create() {
+
+		return generate(new GenerationContext(null, ROWS, COLS, RandomSources.current()));
+	}
+
+	/**
+	 * As {@link #create()} but every random choice comes from the passed in
+	 * seed, so the same seed always gives the same asset whichever thread it
+	 * is made on and whatever else is being made at the same time. With a
+	 * time limit in the budget the result is either that asset or null.
+	 *
+	 * @param seed
+	 *            {@link long}
+	 * @return {@link PixelGrid}
+	 */
+	public PixelGrid create(long seed) {
+
+		return generate(new GenerationContext(null, ROWS, COLS, new SeededRandomSource(seed)));
+	}
 
-	public Pixel[][] create() {
+	@Override
+	protected PixelGrid newBaseGrid(GenerationContext context) {
+		return new PixelGrid(context.rows, context.cols);
+	}
+
+	@Override
+	protected PixelGrid attempt(PixelGrid baseGrid, GenerationContext context) {
 
-		Pixel[][] grid = createBaseGrid();
+		PixelGrid grid = createBaseGrid(baseGrid, context.random);
 
-		grid = PixelGridUtils.mirrorCopyGridHorizontally(grid);
-		grid = PixelGridUtils.mirrorCopyGridVertically(grid);
-		grid = PixelGridUtils.mirrorCopyGridHorizontally(grid);
-		grid = PixelGridUtils.addBorders(grid);
-		PixelGridUtils.fillEmptySurroundedPixelsInGrid(grid);
-		PixelGridUtils.addNoiseToFlatPixels(grid);			
-		PixelGridUtils.setPixelDepth(grid);		
+		grid = PixelGridUtils.mirrorAndAddBorders(grid, false, 2, 1);
 
-		if (validateGrid(grid)) {		
-			return grid;
-		} else {
-			return create();
+		// nothing enclosed means no Pixel.SECONDARY, which can never pass
+		// validation, so don't spend any time adding noise to it
+		if (PixelGridUtils.fillEmptySurroundedPixelsInGrid(grid) == 0) {
+			return reject(grid);
 		}
+
+		PixelGridUtils.addNoiseToFlatPixels(grid, context.random);
+
+		return validateGrid(grid) ? grid : reject(grid);
 	}
 
-	private boolean validateGrid(Pixel[][] grid) {
+	private boolean validateGrid(PixelGrid grid) {
 		
 		boolean result = true;
 
 		int noOfSecondaryPixels = 0;
 		
-		for (int x = 0; x < grid.length; x++) {
-			for (int y = 0; y < grid[0].length; y++) {
-				if (grid[x][y].value == Pixel.FILLED) {
-					if (grid[x - 1][y].value == Pixel.EMPTY || 
-							grid[x + 1][y].value == Pixel.EMPTY || 
-							grid[x][y - 1].value == Pixel.EMPTY || 
-							grid[x][y + 1].value == Pixel.EMPTY) {
+		for (int x = 0; x < grid.getRows(); x++) {
+			for (int y = 0; y < grid.getCols(); y++) {
+				if (grid.getValue(x, y) == Pixel.FILLED) {
+					if (grid.getValue(x - 1, y) == Pixel.EMPTY || 
+							grid.getValue(x + 1, y) == Pixel.EMPTY || 
+							grid.getValue(x, y - 1) == Pixel.EMPTY || 
+							grid.getValue(x, y + 1) == Pixel.EMPTY) {
 						return false;
 					}
-				} else if (grid[x][y].value == Pixel.SECONDARY) {
+				} else if (grid.getValue(x, y) == Pixel.SECONDARY) {
 					noOfSecondaryPixels++;
 					
-					if (grid[x - 1][y].value == Pixel.EMPTY || 
-							grid[x + 1][y].value == Pixel.EMPTY || 
-							grid[x][y - 1].value == Pixel.EMPTY || 
-							grid[x][y + 1].value == Pixel.EMPTY) {
+					if (grid.getValue(x - 1, y) == Pixel.EMPTY || 
+							grid.getValue(x + 1, y) == Pixel.EMPTY || 
+							grid.getValue(x, y - 1) == Pixel.EMPTY || 
+							grid.getValue(x, y + 1) == Pixel.EMPTY) {
 						return false;
 					}
 				}
@@ -65,47 +103,43 @@ public class ConsoleGeneratorFactory {
 		return result;
 	}
 	
-	private Pixel[][] createBaseGrid() {
+	private PixelGrid createBaseGrid(PixelGrid grid, RandomSource random) {
 
-		Pixel[][] grid = new Pixel[ROWS][COLS];
-		PixelGridUtils.initEmptyGrid(grid, ROWS, COLS);
+		grid.clear();
 
-		Point point = new Point(ROWS -1, COLS - 1);
+		RandomWalker walker = new RandomWalker(grid.getRows(), grid.getCols(), random);
+		walker.moveTo(ROWS - 1, COLS - 1);
 
 		int steps = 2;
 		int subSteps = 10;
 
+		Point lastFilledPixel = new Point(-1, -1);
+
 		for (int i = 0; i < steps; i++) {
 
-			if (point == null) {
-				// down top
-				for (int x = ROWS - 1; x > 0; x--) {
-					// left to right
-					for (int y = 0; y < COLS; y++) {
-						if (grid[x][y].value == Pixel.FILLED) {
-							point = new Point(x, y);
-						}
-					}
-				}
+			if (i > 0) {
+				// go again from the last filled pixel scanning down top and
+				// left to right
+				walker.moveTo(lastFilledPixel.x, lastFilledPixel.y);
 			}
 
 			for (int y = 0; y < subSteps; y++) {
-				point = processPoint(point, grid);
+				trackTopMostFilledPixel(lastFilledPixel, walker.getX(), walker.getY());
+				trackTopMostFilledPixel(lastFilledPixel, walker.getY(), walker.getX());
+				processPoint(walker, grid);
 			}
-
-			point = null;
 		}
 
 		return grid;
 	}
 
-	private Point processPoint(Point point, Pixel[][] grid) {
+	private void processPoint(RandomWalker walker, PixelGrid grid) {
 
-		if (grid[point.x][point.y].value == Pixel.EMPTY) {
-			grid[point.x][point.y].value = Pixel.FILLED;
-			grid[point.y][point.x].value = Pixel.FILLED;
+		if (grid.getValue(walker.getX(), walker.getY()) == Pixel.EMPTY) {
+			grid.setValue(walker.getX(), walker.getY(), Pixel.FILLED);
+			grid.setValue(walker.getY(), walker.getX(), Pixel.FILLED);
 		}
 
-		return PixelGridUtils.getRandomAdjacentPoint(point, grid);
+		walker.step();
 	}
 }
@@ -0,0 +1,67 @@
+package ajb.factory;
+
+/**
+ * Limits how many attempts and how much time a factory may spend generating a
+ * single asset. Candidates that fail validation are thrown away and generated
+ * again, a budget puts an upper bound on how long that can go on for.
+ *
+ * At least one attempt is always made.
+ */
+public class GenerationBudget {
+
+	public static final GenerationBudget UNLIMITED = new GenerationBudget(Integer.MAX_VALUE, Long.MAX_VALUE);
+
+	private final int maxNoOfAttempts;
+	private final long maxMillis;
+
+	/**
+	 * @param maxNoOfAttempts
+	 *            {@link int}
+	 * @param maxMillis
+	 *            {@link long} time after which no more attempts are started
+	 */
+	public GenerationBudget(int maxNoOfAttempts, long maxMillis) {
+
+		if (maxNoOfAttempts < 1) {
+			throw new IllegalArgumentException("maxNoOfAttempts must be at least 1");
+		}
+
+		if (maxMillis < 0) {
+			throw new IllegalArgumentException("maxMillis must not be negative");
+		}
+
+		this.maxNoOfAttempts = maxNoOfAttempts;
+		this.maxMillis = maxMillis;
+	}
+
+	public int getMaxNoOfAttempts() {
+		return maxNoOfAttempts;
+	}
+
+	public long getMaxMillis() {
+		return maxMillis;
+	}
+
+	/**
+	 * Returns true if another attempt can be started
+	 *
+	 * @param noOfAttempts
+	 *            {@link int} attempts made so far
+	 * @param startTime
+	 *            {@link long} value of System.nanoTime() when the first
+	 *            attempt started
+	 * @return {@link boolean}
+	 */
+	public boolean allowsAttempt(int noOfAttempts, long startTime) {
+
+		if (noOfAttempts == 0) {
+			return true;
+		}
+
+		if (noOfAttempts >= maxNoOfAttempts) {
+			return false;
+		}
+
+		return maxMillis == Long.MAX_VALUE || (System.nanoTime() - startTime) / 1000000L < maxMillis;
+	}
+}
@@ -0,0 +1,55 @@
+package ajb.factory;
+
+import ajb.enums.AssetSize;
+import ajb.utils.RandomSource;
+
+/**
+ * Everything a single call to create works with. It is made afresh for each
+ * call and never stored on the factory, so one factory can be used by any
+ * number of threads at the same time.
+ */
+class GenerationContext {
+
+	final AssetSize size;
+	final int rows;
+	final int cols;
+	final RandomSource random;
+
+	GenerationContext(AssetSize size, int rows, int cols, RandomSource random) {
+		this.size = size;
+		this.rows = rows;
+		this.cols = cols;
+		this.random = random;
+	}
+
+	/**
+	 * Returns a context with the grid dimensions used for the passed in size
+	 *
+	 * @param size
+	 *            {@link AssetSize}
+	 * @param random
+	 *            {@link RandomSource}
+	 * @return {@link GenerationContext}
+	 */
+	static GenerationContext forSize(AssetSize size, RandomSource random) {
+
+		int rows = 0;
+		int cols = 0;
+
+		if (size.equals(AssetSize.RANDOM)) {
+			rows = 300;
+			cols = 300;
+		} else if (size.equals(AssetSize.SMALL)) {
+			rows = 100;
+			cols = 100;
+		} else if (size.equals(AssetSize.MEDIUM)) {
+			rows = 200;
+			cols = 200;
+		} else if (size.equals(AssetSize.LARGE)) {
+			rows = 300;
+			cols = 300;
+		}
+
+		return new GenerationContext(size, rows, cols, random);
+	}
+}
@@ -0,0 +1,86 @@
+package ajb.factory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running totals of how many attempts a factory has needed per asset, safe to
+ * update from many threads at once.
+ */
+public class GenerationStats {
+
+	private final AtomicLong noOfAssets = new AtomicLong();
+	private final AtomicLong noOfFailures = new AtomicLong();
+	private final AtomicLong noOfAttempts = new AtomicLong();
+
+	/**
+	 * Records an asset that passed validation after the passed in number of
+	 * attempts
+	 *
+	 * @param attempts
+	 *            {@link int}
+	 */
+	public void recordAsset(int attempts) {
+		noOfAssets.incrementAndGet();
+		noOfAttempts.addAndGet(attempts);
+	}
+
+	/**
+	 * Records a request that ran out of budget after the passed in number of
+	 * attempts without producing a valid asset
+	 *
+	 * @param attempts
+	 *            {@link int}
+	 */
+	public void recordFailure(int attempts) {
+		noOfFailures.incrementAndGet();
+		noOfAttempts.addAndGet(attempts);
+	}
+
+	public long getNoOfAssets() {
+		return noOfAssets.get();
+	}
+
+	public long getNoOfFailures() {
+		return noOfFailures.get();
+	}
+
+	public long getNoOfAttempts() {
+		return noOfAttempts.get();
+	}
+
+	/**
+	 * Returns the average number of attempts made per request
+	 *
+	 * @return {@link double}
+	 */
+	public double getAverageNoOfAttempts() {
+
+		long noOfRequests = noOfAssets.get() + noOfFailures.get();
+
+		return noOfRequests == 0 ? 0 : (double) noOfAttempts.get() / noOfRequests;
+	}
+
+	/**
+	 * Returns the fraction of attempts that were rejected by validation
+	 *
+	 * @return {@link double}
+	 */
+	public double getRejectionRate() {
+
+		long attempts = noOfAttempts.get();
+
+		return attempts == 0 ? 0 : (double) (attempts - noOfAssets.get()) / attempts;
+	}
+
+	public void reset() {
+		noOfAssets.set(0);
+		noOfFailures.set(0);
+		noOfAttempts.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("assets: %d, failures: %d, attempts: %d, average attempts: %.2f, rejection rate: %.1f%%",
+				getNoOfAssets(), getNoOfFailures(), getNoOfAttempts(), getAverageNoOfAttempts(), getRejectionRate() * 100);
+	}
+}
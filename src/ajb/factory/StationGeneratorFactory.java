@@ -3,61 +3,81 @@ package ajb.factory;
 import java.awt.Point;
 
 import ajb.domain.Pixel;
+import ajb.domain.PixelGrid;
 import ajb.enums.AssetSize;
-import ajb.random.RandomInt;
 import ajb.utils.PixelGridUtils;
+import ajb.utils.RandomSources;
+import ajb.utils.RandomWalker;
+import ajb.utils.SeededRandomSource;
+
+/**
+ * Generates stations, see {@link AbstractGeneratorFactory} for how attempts are
+ * made and why one instance can be shared between threads.
+ */
+public class StationGeneratorFactory extends AbstractGeneratorFactory<GenerationContext> {
+
+	/**
+	 * Generates candidate grids until one passes validation. Returns null if
+	 * the budget runs out first. The grid can be released once finished with
+	 * so its storage is reused by the next asset made on the same thread.
+	 *
+	 * @param size
+	 *            {@link AssetSize}
+	 * @return {@link PixelGrid}
+	 */
+	public PixelGrid create(AssetSize size) {
+
+		return generate(GenerationContext.forSize(size, RandomSources.current()));
+	}
 
-public class StationGeneratorFactory {
+	/**
+	 * As {@link #create(AssetSize)} but every random choice comes from the
+	 * passed in seed, so the same seed and size always give the same asset
+	 * whichever thread it is made on and whatever else is being made at the
+	 * same time. With a time limit in the budget the result is either that
+	 * asset or null.
+	 *
+	 * @param size
+	 *            {@link AssetSize}
+	 * @param seed
+	 *            {@link long}
+	 * @return {@link PixelGrid}
+	 */
+	public PixelGrid create(AssetSize size, long seed) {
+
+		return generate(GenerationContext.forSize(size, new SeededRandomSource(seed)));
+	}
 
-	private int rows = 0;
-	private int cols = 0;
+	@Override
+	protected PixelGrid attempt(PixelGrid baseGrid, GenerationContext context) {
 
-	public Pixel[][] create(AssetSize size) {
+		PixelGrid grid = createBaseGrid(baseGrid, context);
 
-		if (size.equals(AssetSize.RANDOM)) {
-			rows = 300;
-			cols = 300;
-		} else if (size.equals(AssetSize.SMALL)) {
-			rows = 100;
-			cols = 100;
-		} else if (size.equals(AssetSize.MEDIUM)) {
-			rows = 200;
-			cols = 200;
-		} else if (size.equals(AssetSize.LARGE)) {
-			rows = 300;
-			cols = 300;
-		}		
-		
-		Pixel[][] grid = createBaseGrid(size);
-
-		grid = PixelGridUtils.floor(grid);
-		grid = PixelGridUtils.mirrorCopyGridHorizontally(grid);
-		grid = PixelGridUtils.mirrorCopyGridVertically(grid);
-		grid = PixelGridUtils.addBorders(grid);
-		grid = PixelGridUtils.floor(grid);
-		PixelGridUtils.fillEmptySurroundedPixelsInGrid(grid);
-		PixelGridUtils.addNoiseToFlatPixels(grid);			
-		PixelGridUtils.setPixelDepth(grid);		
-
-		if (validateGrid(grid)) {		
-			return grid;
-		} else {
-			return create(size);
+		grid = PixelGridUtils.mirrorAndAddBorders(grid, true, 1, 1);
+
+		// nothing enclosed means no Pixel.SECONDARY, which can never pass
+		// validation, so don't spend any time adding noise to it
+		if (PixelGridUtils.fillEmptySurroundedPixelsInGrid(grid) == 0) {
+			return reject(grid);
 		}
+
+		PixelGridUtils.addNoiseToFlatPixels(grid, context.random);
+
+		return validateGrid(grid) ? grid : reject(grid);
 	}
 
-	private boolean validateGrid(Pixel[][] grid) {
+	private boolean validateGrid(PixelGrid grid) {
 		
 		boolean result = true;
 		
 		int noOfFilledPixels = 0;
 		int noOfSecondaryPixels = 0;
 		
-		for (int x = 0; x < grid.length; x++) {
-			for (int y = 0; y < grid[0].length; y++) {
-				if (grid[x][y].value == Pixel.FILLED) {
+		for (int x = 0; x < grid.getRows(); x++) {
+			for (int y = 0; y < grid.getCols(); y++) {
+				if (grid.getValue(x, y) == Pixel.FILLED) {
 					noOfFilledPixels++;
-				} else if (grid[x][y].value == Pixel.SECONDARY) {
+				} else if (grid.getValue(x, y) == Pixel.SECONDARY) {
 					noOfSecondaryPixels++;
 				}
 			}
@@ -74,48 +94,44 @@ public class StationGeneratorFactory {
 		return result;
 	}
 	
-	private Pixel[][] createBaseGrid(AssetSize size) {
+	private PixelGrid createBaseGrid(PixelGrid grid, GenerationContext context) {
 
-		Pixel[][] grid = new Pixel[rows][cols];
-		PixelGridUtils.initEmptyGrid(grid, rows, cols);
+		grid.clear();
 
-		Point point = new Point(rows -1, cols - 1);
+		RandomWalker walker = new RandomWalker(grid.getRows(), grid.getCols(), context.random);
+		walker.moveTo(context.rows - 1, context.cols - 1);
 
-		int steps = RandomInt.anyRandomIntRange(calculateMinNoOfSteps(size), calculateMaxNoOfSteps(size));
-		int subSteps = RandomInt.anyRandomIntRange(calculateMinNoOfSubSteps(size), calculateMaxNoOfSubSteps(size));
+		int steps = context.random.anyRandomIntRange(calculateMinNoOfSteps(context.size), calculateMaxNoOfSteps(context.size));
+		int subSteps = context.random.anyRandomIntRange(calculateMinNoOfSubSteps(context.size), calculateMaxNoOfSubSteps(context.size));
+
+		Point lastFilledPixel = new Point(-1, -1);
 
 		for (int i = 0; i < steps; i++) {
 
-			if (point == null) {
-				// down top
-				for (int x = rows - 1; x > 0; x--) {
-					// left to right
-					for (int y = 0; y < cols; y++) {
-						if (grid[x][y].value == Pixel.FILLED) {
-							point = new Point(x, y);
-						}
-					}
-				}
+			if (i > 0) {
+				// go again from the last filled pixel scanning down top and
+				// left to right
+				walker.moveTo(lastFilledPixel.x, lastFilledPixel.y);
 			}
 
 			for (int y = 0; y < subSteps; y++) {
-				point = processPoint(point, grid);
+				trackTopMostFilledPixel(lastFilledPixel, walker.getX(), walker.getY());
+				trackTopMostFilledPixel(lastFilledPixel, walker.getY(), walker.getX());
+				processPoint(walker, grid);
 			}
-
-			point = null;
 		}
 
 		return grid;
 	}
 
-	private Point processPoint(Point point, Pixel[][] grid) {
+	private void processPoint(RandomWalker walker, PixelGrid grid) {
 
-		if (grid[point.x][point.y].value == Pixel.EMPTY) {
-			grid[point.x][point.y].value = Pixel.FILLED;
-			grid[point.y][point.x].value = Pixel.FILLED;
+		if (grid.getValue(walker.getX(), walker.getY()) == Pixel.EMPTY) {
+			grid.setValue(walker.getX(), walker.getY(), Pixel.FILLED);
+			grid.setValue(walker.getY(), walker.getX(), Pixel.FILLED);
 		}
 
-		return PixelGridUtils.getRandomAdjacentPoint(point, grid);
+		walker.step();
 	}
 	
 	private int calculateMinNoOfSteps(AssetSize size) {
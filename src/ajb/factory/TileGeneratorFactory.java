@@ -1,82 +1,98 @@
 package ajb.factory;
 
-import java.awt.Point;
-
 import ajb.domain.Pixel;
-import ajb.random.RandomInt;
+import ajb.domain.PixelGrid;
 import ajb.utils.PixelGridUtils;
+import ajb.utils.RandomSource;
+import ajb.utils.RandomSources;
+import ajb.utils.RandomWalker;
+import ajb.utils.SeededRandomSource;
 
-public class TileGeneratorFactory {
+/**
+ * Generates tiles, see {@link AbstractGeneratorFactory} for how attempts are
+ * made and why one instance can be shared between threads.
+ */
+public class TileGeneratorFactory extends AbstractGeneratorFactory<GenerationContext> {
 
 	private final int ROWS = 9;
 	private final int COLS = 9;
+	/**
+	 * Generates candidate grids until one passes validation. Returns null if
+	 * the budget runs out first. The grid can be released once finished with
+	 * so its storage is reused by the next asset made on the same thread.
+	 *
+	 * @return {@link PixelGrid}
+	 */
+	public PixelGrid create() {
+
+		return generate(new GenerationContext(null, ROWS, COLS, RandomSources.current()));
+	}
 
-	public Pixel[][] create() {
-
-		Pixel[][] grid = createBaseGrid();
-		
-		grid = PixelGridUtils.mirrorCopyGridHorizontally(grid);
-		grid = PixelGridUtils.mirrorCopyGridVertically(grid);
-		grid = PixelGridUtils.addBorders(grid);
-		PixelGridUtils.fillEmptySurroundedPixelsInGrid(grid);			
-		PixelGridUtils.setPixelDepth(grid);		
+	/**
+	 * As {@link #create()} but every random choice comes from the passed in
+	 * seed, so the same seed always gives the same asset whichever thread it
+	 * is made on and whatever else is being made at the same time. With a
+	 * time limit in the budget the result is either that asset or null.
+	 *
+	 * @param seed
+	 *            {@link long}
+	 * @return {@link PixelGrid}
+	 */
+	public PixelGrid create(long seed) {
+
+		return generate(new GenerationContext(null, ROWS, COLS, new SeededRandomSource(seed)));
+	}
 
-		if (validateGrid(grid)) {		
-			return grid;
-		} else {
-			return create();
-		}
+	@Override
+	protected PixelGrid newBaseGrid(GenerationContext context) {
+		return new PixelGrid(context.rows, context.cols);
 	}
 
-	private boolean validateGrid(Pixel[][] grid) {
-		
-		boolean result = true;
-
-		int noOfSecondaryPixels = 0;
-		
-		for (int x = 0; x < grid.length; x++) {
-			for (int y = 0; y < grid[0].length; y++) {
-				if (grid[x][y].value == Pixel.SECONDARY) {
-					noOfSecondaryPixels++;
-				}
-			}
-		}
+	@Override
+	protected PixelGrid attempt(PixelGrid baseGrid, GenerationContext context) {
 
-		if (noOfSecondaryPixels == 0) {
-			return false;
+		PixelGrid grid = createBaseGrid(baseGrid, context.random);
+
+		grid = PixelGridUtils.mirrorAndAddBorders(grid, false, 1, 1);
+
+		// a tile is valid as long as something is enclosed, and with no noise
+		// nothing can take the Pixel.SECONDARY pixels away again, so the fill
+		// count is all that needs checking
+		if (PixelGridUtils.fillEmptySurroundedPixelsInGrid(grid) == 0) {
+			return reject(grid);
 		}
 
-		return result;
+		return grid;
 	}
-	
-	private Pixel[][] createBaseGrid() {
 
-		Pixel[][] grid = new Pixel[ROWS][COLS];
-		PixelGridUtils.initEmptyGrid(grid, ROWS, COLS);
+	private PixelGrid createBaseGrid(PixelGrid grid, RandomSource random) {
+
+		grid.clear();
 
 		int steps = 10;
 		int subSteps = 30;
 
+		RandomWalker walker = new RandomWalker(grid.getRows(), grid.getCols(), random);
+
 		for (int i = 0; i < steps; i++) {
 
-			Point point = new Point(ROWS -1, COLS - 1);
+			walker.moveTo(ROWS - 1, COLS - 1);
 
 			for (int y = 0; y < subSteps; y++) {
-				point = processPoint(point, grid);
+				processPoint(walker, grid);
 			}
-
 		}
 
 		return grid;
 	}
 
-	private Point processPoint(Point point, Pixel[][] grid) {
+	private void processPoint(RandomWalker walker, PixelGrid grid) {
 
-		if (grid[point.x][point.y].value == Pixel.EMPTY) {
-			grid[point.x][point.y].value = Pixel.FILLED;
-			grid[point.y][point.x].value = Pixel.FILLED;
+		if (grid.getValue(walker.getX(), walker.getY()) == Pixel.EMPTY) {
+			grid.setValue(walker.getX(), walker.getY(), Pixel.FILLED);
+			grid.setValue(walker.getY(), walker.getX(), Pixel.FILLED);
 		}
 
-		return PixelGridUtils.getRandomAdjacentPoint(point, grid);
+		walker.step();
 	}
 }
@@ -2,62 +2,84 @@ package ajb.factory;
 
 import java.awt.Point;
 
+import ajb.domain.FilledPixelIndex;
 import ajb.domain.Pixel;
+import ajb.domain.PixelGrid;
 import ajb.enums.AssetSize;
-import ajb.random.RandomInt;
 import ajb.utils.PixelGridUtils;
+import ajb.utils.RandomSources;
+import ajb.utils.RandomWalker;
+import ajb.utils.SeededRandomSource;
+
+/**
+ * Generates vessels, see {@link AbstractGeneratorFactory} for how attempts are
+ * made and why one instance can be shared between threads.
+ */
+public class VesselGeneratorFactory extends AbstractGeneratorFactory<VesselGeneratorFactory.VesselContext> {
+
+	/**
+	 * Generates candidate grids until one passes validation. Returns null if
+	 * the budget runs out first. The grid can be released once finished with
+	 * so its storage is reused by the next asset made on the same thread.
+	 *
+	 * @param size
+	 *            {@link AssetSize}
+	 * @return {@link PixelGrid}
+	 */
+	public PixelGrid create(AssetSize size) {
+
+		return generate(new VesselContext(GenerationContext.forSize(size, RandomSources.current())));
+	}
 
-public class VesselGeneratorFactory {
+	/**
+	 * As {@link #create(AssetSize)} but every random choice comes from the
+	 * passed in seed, so the same seed and size always give the same asset
+	 * whichever thread it is made on and whatever else is being made at the
+	 * same time. With a time limit in the budget the result is either that
+	 * asset or null.
+	 *
+	 * @param size
+	 *            {@link AssetSize}
+	 * @param seed
+	 *            {@link long}
+	 * @return {@link PixelGrid}
+	 */
+	public PixelGrid create(AssetSize size, long seed) {
+
+		return generate(new VesselContext(GenerationContext.forSize(size, new SeededRandomSource(seed))));
+	}
 
-	private int rows = 0;
-	private int cols = 0;
+	@Override
+	protected PixelGrid attempt(PixelGrid baseGrid, VesselContext context) {
 
-	public Pixel[][] create(AssetSize size) {
+		PixelGrid grid = createBaseGrid(baseGrid, context.filledPixels, context);
+		addExtras(grid, context.filledPixels, context);
 
-		if (size.equals(AssetSize.RANDOM)) {
-			rows = 300;
-			cols = 300;
-		} else if (size.equals(AssetSize.SMALL)) {
-			rows = 100;
-			cols = 100;
-		} else if (size.equals(AssetSize.MEDIUM)) {
-			rows = 200;
-			cols = 200;
-		} else if (size.equals(AssetSize.LARGE)) {
-			rows = 300;
-			cols = 300;
-		}
+		grid = PixelGridUtils.mirrorAndAddBorders(grid, true, 1, 0);
 
-		Pixel[][] grid = createBaseGrid(size);
-		addExtras(grid, size);
-
-		grid = PixelGridUtils.floor(grid);
-		grid = PixelGridUtils.mirrorCopyGridHorizontally(grid);
-		grid = PixelGridUtils.addBorders(grid);
-		grid = PixelGridUtils.floor(grid);
-		PixelGridUtils.fillEmptySurroundedPixelsInGrid(grid);
-		PixelGridUtils.addNoiseToFlatPixels(grid);
-		PixelGridUtils.setPixelDepth(grid);
-
-		if (validateGrid(grid, size)) {
-			return grid;
-		} else {
-			return create(size);
+		// nothing enclosed means no Pixel.SECONDARY, which can never pass
+		// validation, so don't spend any time adding noise to it
+		if (PixelGridUtils.fillEmptySurroundedPixelsInGrid(grid) == 0) {
+			return reject(grid);
 		}
+
+		PixelGridUtils.addNoiseToFlatPixels(grid, context.random);
+
+		return validateGrid(grid, context.size) ? grid : reject(grid);
 	}
 
-	private boolean validateGrid(Pixel[][] grid, AssetSize size) {
+	private boolean validateGrid(PixelGrid grid, AssetSize size) {
 
 		boolean result = true;
 
 		int noOfFilledPixels = 0;
 		int noOfSecondaryPixels = 0;
 
-		for (int x = 0; x < grid.length; x++) {
-			for (int y = 0; y < grid[0].length; y++) {
-				if (grid[x][y].value == Pixel.FILLED) {
+		for (int x = 0; x < grid.getRows(); x++) {
+			for (int y = 0; y < grid.getCols(); y++) {
+				if (grid.getValue(x, y) == Pixel.FILLED) {
 					noOfFilledPixels++;
-				} else if (grid[x][y].value == Pixel.SECONDARY) {
+				} else if (grid.getValue(x, y) == Pixel.SECONDARY) {
 					noOfSecondaryPixels++;
 				}
 			}
@@ -74,64 +96,80 @@ public class VesselGeneratorFactory {
 		return result;
 	}
 
-	private Pixel[][] createBaseGrid(AssetSize size) {
+	private PixelGrid createBaseGrid(PixelGrid grid, FilledPixelIndex filledPixels, GenerationContext context) {
 
-		Pixel[][] grid = new Pixel[rows][cols];
-		PixelGridUtils.initEmptyGrid(grid, rows, cols);
+		grid.clear();
+		filledPixels.clear();
 
-		Point point = new Point(rows / 2, cols - 1);
+		RandomWalker walker = new RandomWalker(grid.getRows(), grid.getCols(), context.random);
+		walker.moveTo(context.rows / 2, context.cols - 1);
 
-		int steps = RandomInt.anyRandomIntRange(calculateMinNoOfSteps(size), calculateMaxNoOfSteps(size));
-		int subSteps = RandomInt.anyRandomIntRange(calculateMinNoOfSubSteps(size), calculateMaxNoOfSubSteps(size));
+		int steps = context.random.anyRandomIntRange(calculateMinNoOfSteps(context.size), calculateMaxNoOfSteps(context.size));
+		int subSteps = context.random.anyRandomIntRange(calculateMinNoOfSubSteps(context.size), calculateMaxNoOfSubSteps(context.size));
+
+		Point lastFilledPixel = new Point(-1, -1);
 
 		for (int i = 0; i < steps; i++) {
 
-			if (point == null) {
+			if (i > 0) {
 				// we are passed the first step lets find the lowest most pixel
 				// that is closest to the middle, and go again from there...
-
-				// top down
-				for (int x = 0; x < rows; x++) {
-					// left to right
-					for (int y = 0; y < cols; y++) {
-						if (grid[x][y].value == Pixel.FILLED) {
-							point = new Point(x, y);
-						}
-					}
-				}
+				walker.moveTo(lastFilledPixel.x, lastFilledPixel.y);
 			}
 
 			for (int y = 0; y < subSteps; y++) {
-				point = processPoint(point, grid);
+				trackLastFilledPixel(lastFilledPixel, walker.getX(), walker.getY());
+				processPoint(walker, grid, filledPixels);
 			}
-
-			point = null;
 		}
 
 		return grid;
 	}
 
-	private void addExtras(Pixel[][] grid, AssetSize size) {
+	private void addExtras(PixelGrid grid, FilledPixelIndex filledPixels, GenerationContext context) {
+
+		int steps = context.random.anyRandomIntRange(calculateMinNoOfSteps(context.size) - 10, calculateMaxNoOfSteps(context.size) - 10);
+		int subSteps = context.random.anyRandomIntRange(calculateMinNoOfSubSteps(context.size) - 10, calculateMaxNoOfSubSteps(context.size) - 10);
 
-		int steps = RandomInt.anyRandomIntRange(calculateMinNoOfSteps(size) - 10, calculateMaxNoOfSteps(size) - 10);
-		int subSteps = RandomInt.anyRandomIntRange(calculateMinNoOfSubSteps(size) - 10, calculateMaxNoOfSubSteps(size) - 10);
+		RandomWalker walker = new RandomWalker(grid.getRows(), grid.getCols(), context.random);
 
 		for (int i = 0; i < steps; i++) {
-			Point point = PixelGridUtils.getRandomFilledPoint(grid);
+			Point point = PixelGridUtils.getRandomFilledPoint(filledPixels, context.random);
+			walker.moveTo(point.x, point.y);
 
 			for (int y = 0; y < subSteps; y++) {
-				point = processPoint(point, grid);
+				processPoint(walker, grid, filledPixels);
 			}
 		}
 	}
 
-	private Point processPoint(Point point, Pixel[][] grid) {
+	/**
+	 * Keeps hold of the pixel that scanning the grid top down and left to
+	 * right would find last i.e. the bottom most row then the right most
+	 * column, so the grid never needs scanning
+	 *
+	 * @param lastFilledPixel
+	 *            {@link Point}
+	 * @param x
+	 *            {@link int}
+	 * @param y
+	 *            {@link int}
+	 */
+	private void trackLastFilledPixel(Point lastFilledPixel, int x, int y) {
+
+		if (x > lastFilledPixel.x || (x == lastFilledPixel.x && y > lastFilledPixel.y)) {
+			lastFilledPixel.setLocation(x, y);
+		}
+	}
+
+	private void processPoint(RandomWalker walker, PixelGrid grid, FilledPixelIndex filledPixels) {
 
-		if (grid[point.x][point.y].value == Pixel.EMPTY) {
-			grid[point.x][point.y].value = Pixel.FILLED;
+		if (grid.getValue(walker.getX(), walker.getY()) == Pixel.EMPTY) {
+			grid.setValue(walker.getX(), walker.getY(), Pixel.FILLED);
+			filledPixels.add(walker.getX(), walker.getY());
 		}
 
-		return PixelGridUtils.getRandomAdjacentPoint(point, grid);
+		walker.step();
 	}
 
 	private int calculateMinNoOfSteps(AssetSize size) {
@@ -201,4 +239,17 @@ public class VesselGeneratorFactory {
 
 		return result;
 	}
+
+	/**
+	 * The usual context plus the index of filled pixels, which each attempt
+	 * clears and fills again as it walks
+	 */
+	static class VesselContext extends GenerationContext {
+
+		final FilledPixelIndex filledPixels = new FilledPixelIndex();
+
+		VesselContext(GenerationContext context) {
+			super(context.size, context.rows, context.cols, context.random);
+		}
+	}
 }
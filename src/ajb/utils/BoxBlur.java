@@ -0,0 +1,125 @@
+package ajb.utils;
+
+/**
+ * Approximates a Gaussian blur with three box blurs one after another, each
+ * worked out with a running sum so the cost per pixel is the same whatever
+ * the radius.
+ *
+ * The box sizes are picked so the three together spread as far as a
+ * {@link GaussianFilter} of the same radius, whose standard deviation is a
+ * third of its radius. Edges are clamped and alpha is blurred along with the
+ * colour channels, as {@link GaussianFilter} does.
+ */
+public class BoxBlur {
+
+	private static final int NO_OF_BOXES = 3;
+
+	private final int[] radii;
+
+	public BoxBlur(float radius) {
+		this.radii = boxRadii(radius / 3);
+	}
+
+	/**
+	 * Blurs src into dst, both ARGB one int per pixel row by row. src is left
+	 * as it was and scratch must be the same size.
+	 *
+	 * @param src
+	 *            {@link int[]}
+	 * @param scratch
+	 *            {@link int[]}
+	 * @param dst
+	 *            {@link int[]}
+	 * @param width
+	 *            {@link int}
+	 * @param height
+	 *            {@link int}
+	 */
+	public void blur(int[] src, int[] scratch, int[] dst, int width, int height) {
+
+		int[] in = src;
+
+		// each pass blurs across and writes the result transposed, so two
+		// passes blur across then down and leave the pixels the right way up
+		for (int i = 0; i < radii.length; i++) {
+			blurAndTranspose(in, scratch, width, height, radii[i]);
+			blurAndTranspose(scratch, dst, height, width, radii[i]);
+			in = dst;
+		}
+	}
+
+	/**
+	 * Returns the radius of each box so that together they have the passed
+	 * in standard deviation
+	 */
+	private static int[] boxRadii(float sigma) {
+
+		double idealWidth = Math.sqrt((12 * sigma * sigma / NO_OF_BOXES) + 1);
+
+		int lowerWidth = (int) Math.floor(idealWidth);
+
+		if (lowerWidth % 2 == 0) {
+			lowerWidth--;
+		}
+
+		int upperWidth = lowerWidth + 2;
+
+		// how many boxes of the lower width bring the spread closest
+		long noOfLowerBoxes = Math.round((12 * sigma * sigma - NO_OF_BOXES * lowerWidth * lowerWidth - 4 * NO_OF_BOXES * lowerWidth - 3 * NO_OF_BOXES)
+				/ (-4.0 * lowerWidth - 4));
+
+		int[] radii = new int[NO_OF_BOXES];
+
+		for (int i = 0; i < NO_OF_BOXES; i++) {
+			radii[i] = ((i < noOfLowerBoxes ? lowerWidth : upperWidth) - 1) / 2;
+		}
+
+		return radii;
+	}
+
+	private static void blurAndTranspose(int[] in, int[] out, int width, int height, int radius) {
+
+		int lastCol = width - 1;
+		int boxWidth = (radius * 2) + 1;
+		int half = boxWidth / 2;
+
+		for (int y = 0; y < height; y++) {
+
+			int rowStart = y * width;
+
+			// start with the box centred on the first pixel, everything off
+			// the left hand edge counting as the first pixel
+			int first = in[rowStart];
+			int sumA = ((first >>> 24) & 0xFF) * (radius + 1);
+			int sumR = ((first >> 16) & 0xFF) * (radius + 1);
+			int sumG = ((first >> 8) & 0xFF) * (radius + 1);
+			int sumB = (first & 0xFF) * (radius + 1);
+
+			for (int i = 1; i <= radius; i++) {
+				int rgb = in[rowStart + Math.min(i, lastCol)];
+				sumA += (rgb >>> 24) & 0xFF;
+				sumR += (rgb >> 16) & 0xFF;
+				sumG += (rgb >> 8) & 0xFF;
+				sumB += rgb & 0xFF;
+			}
+
+			int index = y;
+
+			for (int x = 0; x < width; x++) {
+
+				out[index] = (((sumA + half) / boxWidth) << 24) | (((sumR + half) / boxWidth) << 16) | (((sumG + half) / boxWidth) << 8)
+						| ((sumB + half) / boxWidth);
+				index += height;
+
+				// slide the box one pixel to the right
+				int entering = in[rowStart + Math.min(x + radius + 1, lastCol)];
+				int leaving = in[rowStart + Math.max(x - radius, 0)];
+
+				sumA += ((entering >>> 24) & 0xFF) - ((leaving >>> 24) & 0xFF);
+				sumR += ((entering >> 16) & 0xFF) - ((leaving >> 16) & 0xFF);
+				sumG += ((entering >> 8) & 0xFF) - ((leaving >> 8) & 0xFF);
+				sumB += (entering & 0xFF) - (leaving & 0xFF);
+			}
+		}
+	}
+}
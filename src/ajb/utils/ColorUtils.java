@@ -20,8 +20,6 @@ package ajb.utils;
 
 import java.awt.Color;
 
-import ajb.random.RandomInt;
-
 /**
  * Common color utilities.
  * 
@@ -110,6 +108,20 @@ public class ColorUtils {
 	 * @return Lighter color.
 	 */
 	public static Color lighter(Color color, double fraction) {
+		return new Color(lighterArgb(color, fraction), true);
+	}
+
+	/**
+	 * As {@link #lighter(Color, double)} but returns the colour packed into an
+	 * ARGB int, so nothing is allocated
+	 *
+	 * @param color
+	 *            Color to make lighter.
+	 * @param fraction
+	 *            Darkness fraction.
+	 * @return Lighter color as ARGB.
+	 */
+	public static int lighterArgb(Color color, double fraction) {
 		int red = (int) Math.round(color.getRed() * (1.0 + fraction));
 		int green = (int) Math.round(color.getGreen() * (1.0 + fraction));
 		int blue = (int) Math.round(color.getBlue() * (1.0 + fraction));
@@ -129,7 +141,7 @@ public class ColorUtils {
 
 		int alpha = color.getAlpha();
 
-		return new Color(red, green, blue, alpha);
+		return (alpha << 24) | (red << 16) | (green << 8) | blue;
 	}
 
 	/**
@@ -237,6 +249,10 @@ public class ColorUtils {
 	}
 	
 	public static String getRandomColour() {
+		return getRandomColour(RandomSources.current());
+	}
+
+	public static String getRandomColour(RandomSource random) {
 		String blue = "#79ABFF";
 		String red = "#D25252";
 		String green = "#7FB347";
@@ -250,6 +266,6 @@ public class ColorUtils {
 		colours[3] = yellow;
 		colours[4] = purple;				
 		
-		return colours[RandomInt.anyRandomIntRange(0, 4)];
+		return colours[random.anyRandomIntRange(0, 4)];
 	}
 }
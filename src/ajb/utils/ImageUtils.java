@@ -4,130 +4,395 @@ import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Composite;
 import java.awt.Graphics2D;
-import java.awt.GraphicsConfiguration;
-import java.awt.GraphicsEnvironment;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Kernel;
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
+import java.util.Arrays;
 
 import javax.imageio.ImageIO;
 
-import ajb.domain.Pixel;
+import ajb.domain.PixelGrid;
+import ajb.enums.GlowMode;
 import ajb.random.RandomColor;
 
 public class ImageUtils {
 
-	public static BufferedImage outputToImage(Pixel[][] grid, Color primaryColor, Color secondaryColor) {
+	private static final Kernel GLOW_KERNEL = GaussianFilter.makeKernel(12f);
+	private static final Kernel SOFTEN_KERNEL = GaussianFilter.makeKernel(1.2f);
+	private static final BoxBlur GLOW_BOX_BLUR = new BoxBlur(12f);
+
+	private static final int BACKGROUND = 0xFF1E1E1E;
+
+	public static BufferedImage outputToImage(PixelGrid grid, Color primaryColor, Color secondaryColor) {
+
+		return outputToImage(grid, primaryColor, secondaryColor, RandomSources.current());
+	}
+
+	/**
+	 * As {@link #outputToImage(PixelGrid, Color, Color)} picking any missing
+	 * colour from the passed in source, so a seeded asset is also coloured the
+	 * same each time
+	 *
+	 * @param grid
+	 *            {@link PixelGrid}
+	 * @param primaryColor
+	 *            {@link Color}
+	 * @param secondaryColor
+	 *            {@link Color}
+	 * @param random
+	 *            {@link RandomSource}
+	 * @return {@link BufferedImage}
+	 */
+	public static BufferedImage outputToImage(PixelGrid grid, Color primaryColor, Color secondaryColor, RandomSource random) {
+
+		return outputToImage(grid, primaryColor, secondaryColor, random, GlowMode.GAUSSIAN);
+	}
+
+	/**
+	 * As {@link #outputToImage(PixelGrid, Color, Color, RandomSource)} with
+	 * the glow blurred the passed in way. The other methods always use
+	 * {@link GlowMode#GAUSSIAN}, {@link GlowMode#BOX} is close to it and much
+	 * quicker as its cost doesn't grow with the radius.
+	 *
+	 * @param grid
+	 *            {@link PixelGrid}
+	 * @param primaryColor
+	 *            {@link Color}
+	 * @param secondaryColor
+	 *            {@link Color}
+	 * @param random
+	 *            {@link RandomSource}
+	 * @param glowMode
+	 *            {@link GlowMode}
+	 * @return {@link BufferedImage}
+	 */
+	public static BufferedImage outputToImage(PixelGrid grid, Color primaryColor, Color secondaryColor, RandomSource random,
+			GlowMode glowMode) {
+
+		BufferedImage result = new BufferedImage(grid.getCols(), grid.getRows(), BufferedImage.TYPE_INT_ARGB);
+
+		render(grid, primaryColor, secondaryColor, random, glowMode, pixelsOf(result));
+
+		return result;
+	}
+
+	/**
+	 * Renders the grid with its glow into the passed in ARGB buffer, one int
+	 * per pixel row by row, picking any missing colour from the passed in
+	 * source
+	 *
+	 * @param grid
+	 *            {@link PixelGrid}
+	 * @param primaryColor
+	 *            {@link Color}
+	 * @param secondaryColor
+	 *            {@link Color}
+	 * @param random
+	 *            {@link RandomSource}
+	 * @param glowMode
+	 *            {@link GlowMode}
+	 * @param argb
+	 *            {@link int[]}
+	 */
+	private static void render(PixelGrid grid, Color primaryColor, Color secondaryColor, RandomSource random, GlowMode glowMode,
+			int[] argb) {
 		
 		if (primaryColor == null) {
-			primaryColor = Color.decode(ColorUtils.getRandomColour());			
+			primaryColor = Color.decode(ColorUtils.getRandomColour(random));			
 		}		
 		
 		if (secondaryColor == null) {
-			secondaryColor = Color.decode(ColorUtils.getRandomColour());
+			secondaryColor = Color.decode(ColorUtils.getRandomColour(random));
 		}
 		
-		BufferedImage baseImg = createImage(grid, primaryColor, secondaryColor);
-		BufferedImage layer1Img = createImage(grid, primaryColor, secondaryColor);
-		
-		GaussianFilter filter = new GaussianFilter();
-		filter.setRadius(12f);
-		baseImg = filter.filter(baseImg, null);
-		
-		BufferedImage result = blend(baseImg, layer1Img);
+		int width = grid.getCols();
+		int height = grid.getRows();
 
-		filter.setRadius(1.2f);
-		result = filter.filter(result, null);
-		
-		return result;
+		// the grid is drawn once, the glow is blurred from that drawing and the
+		// drawing then blended back over it at half opacity
+		int[] layer = new int[width * height];
+		int[] glow = new int[width * height];
+		int[] scratch = new int[width * height];
+
+		rasterise(grid, ShadingPalette.of(primaryColor, secondaryColor), layer);
+
+		if (glowMode == GlowMode.BOX) {
+			GLOW_BOX_BLUR.blur(layer, scratch, glow, width, height);
+		} else {
+			blur(GLOW_KERNEL, layer, scratch, glow, width, height);
+		}
+
+		blendOverAtHalfOpacity(glow, layer);
+		blur(SOFTEN_KERNEL, glow, scratch, argb, width, height);
 	}
-	
-	public static BufferedImage createImage(Pixel[][] grid, Color primaryColor, Color secondaryColor) {
 
-		GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+	/**
+	 * Writes the colour of each pixel in the grid to the passed in ARGB
+	 * buffer, one int per pixel row by row, the same colours
+	 * {@link #createImage(PixelGrid, Color, Color)} draws
+	 *
+	 * @param grid
+	 *            {@link PixelGrid}
+	 * @param palette
+	 *            {@link ShadingPalette}
+	 * @param argb
+	 *            {@link int[]}
+	 */
+	private static void rasterise(PixelGrid grid, ShadingPalette palette, int[] argb) {
 
-		int scaleFactor = 1;
+		for (int r = 0; r < grid.getRows(); r++) {
+			rasteriseRow(grid, r, palette, argb, r * grid.getCols(), 1);
+		}
+	}
+
+	/**
+	 * Writes the colours of one row of the grid to the passed in ARGB buffer
+	 * from offset on, each pixel repeated scaleFactor times
+	 */
+	private static void rasteriseRow(PixelGrid grid, int r, ShadingPalette palette, int[] argb, int offset, int scaleFactor) {
 
-		BufferedImage img = gc.createCompatibleImage(grid[0].length * scaleFactor, grid.length * scaleFactor, BufferedImage.TYPE_INT_ARGB);
+		int i = offset;
 
-		Graphics2D gr = (Graphics2D) img.getGraphics();
+		for (int c = 0; c < grid.getCols(); c++) {
+
+			int colour = palette.argbOf(grid.getValue(r, c), grid.getDepth(r, c));
+
+			for (int s = 0; s < scaleFactor; s++) {
+				argb[i++] = colour;
+			}
+		}
+	}
 
-		gr.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+	/**
+	 * Returns the array backing a {@link BufferedImage#TYPE_INT_ARGB} image,
+	 * one int per pixel row by row
+	 */
+	private static int[] pixelsOf(BufferedImage img) {
+		return ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+	}
+
+	/**
+	 * Gaussian blurs src into dst as {@link GaussianFilter} does, blurring
+	 * across then down through scratch
+	 */
+	private static void blur(Kernel kernel, int[] src, int[] scratch, int[] dst, int width, int height) {
+
+		GaussianFilter.convolveAndTranspose(kernel, src, scratch, width, height, true, ConvolveFilter.CLAMP_EDGES);
+		GaussianFilter.convolveAndTranspose(kernel, scratch, dst, height, width, true, ConvolveFilter.CLAMP_EDGES);
+	}
 
-		for (int r = 0; r < grid.length; r++) {
-			for (int c = 0; c < grid[0].length; c++) {
+	/**
+	 * Draws top over base in place at half opacity, giving exactly what
+	 * {@link #blend(BufferedImage, BufferedImage)} gives. That draws base onto
+	 * a clear image first, which rounds translucent colours through
+	 * premultiplied alpha, so base is rounded the same way here.
+	 *
+	 * @param base
+	 *            {@link int[]}
+	 * @param top
+	 *            {@link int[]}
+	 */
+	private static void blendOverAtHalfOpacity(int[] base, int[] top) {
 
-				if (grid[r][c].value == Pixel.BORDER) {
-					
-					gr.setColor(Color.BLACK);
-					gr.fillRect(c * scaleFactor, r * scaleFactor, scaleFactor, scaleFactor);
+		for (int i = 0; i < base.length; i++) {
 
-				} else if (grid[r][c].value == Pixel.FILLED) {
+			int dst = base[i];
+			int dstA = dst >>> 24;
 
-					gr.setColor(ColorUtils.lighter(primaryColor, grid[r][c].depth * 0.05 > 3 ? 3 : grid[r][c].depth * 0.05));
-					gr.fillRect(c * scaleFactor, r * scaleFactor, scaleFactor, scaleFactor);
+			if (dstA == 0) {
+				dst = 0;
+			} else if (dstA < 255) {
+				dst = (dstA << 24) | (premultiplyAndBack(dstA, (dst >> 16) & 0xFF) << 16)
+						| (premultiplyAndBack(dstA, (dst >> 8) & 0xFF) << 8) | premultiplyAndBack(dstA, dst & 0xFF);
+			}
 
-				} else if (grid[r][c].value == Pixel.SECONDARY) {
+			int src = top[i];
+			int srcA = mul8(128, src >>> 24);
 
-					gr.setColor(ColorUtils.lighter(secondaryColor, grid[r][c].depth * 0.05));
-					gr.fillRect(c * scaleFactor, r * scaleFactor, scaleFactor, scaleFactor);
-				}
+			if (srcA == 0) {
+				base[i] = dst;
+				continue;
+			}
+
+			int dstF = mul8(255 - srcA, dst >>> 24);
+			int resA = srcA + dstF;
+
+			int resR = mul8(srcA, (src >> 16) & 0xFF) + mul8(dstF, (dst >> 16) & 0xFF);
+			int resG = mul8(srcA, (src >> 8) & 0xFF) + mul8(dstF, (dst >> 8) & 0xFF);
+			int resB = mul8(srcA, src & 0xFF) + mul8(dstF, dst & 0xFF);
+
+			if (resA < 255) {
+				resR = div8(resR, resA);
+				resG = div8(resG, resA);
+				resB = div8(resB, resA);
 			}
+
+			base[i] = (resA << 24) | (resR << 16) | (resG << 8) | resB;
 		}
+	}
 
-		gr.dispose();
+	private static int premultiplyAndBack(int alpha, int channel) {
+		return div8(mul8(alpha, channel), alpha);
+	}
 
-		return img;
+	/**
+	 * Returns a * b / 255 rounded, for a and b between 0 and 255, worked out
+	 * the way Java2D does so blends match it exactly
+	 */
+	private static int mul8(int a, int b) {
+		return (int) (((long) a * b * 0x10101 + (1 << 23)) >>> 24);
 	}
 
-	public static BufferedImage outputAllToImage(List<Pixel[][]> grids, int width, int height, Color primaryColor, Color secondaryColor) {
+	/**
+	 * Returns b * 255 / a rounded and capped at 255, for a greater than 0
+	 */
+	private static int div8(int b, int a) {
 
-		GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+		if (b >= a) {
+			return 255;
+		}
 
-		BufferedImage img = gc.createCompatibleImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		return (int) (((1L << 23) + b * ((0xFF000000L + (a / 2)) / a)) >>> 24);
+	}
+	
+	public static BufferedImage createImage(PixelGrid grid, Color primaryColor, Color secondaryColor) {
 
-		Graphics2D gr = (Graphics2D) img.getGraphics();
+		int scaleFactor = 1;
+
+		int width = grid.getCols() * scaleFactor;
+
+		BufferedImage img = new BufferedImage(width, grid.getRows() * scaleFactor, BufferedImage.TYPE_INT_ARGB);
+
+		// colours are written straight into the image, each grid row once
+		// with its pixels repeated across and then copied down
+		int[] pixels = pixelsOf(img);
+		ShadingPalette palette = ShadingPalette.of(primaryColor, secondaryColor);
+
+		for (int r = 0; r < grid.getRows(); r++) {
+
+			int offset = r * scaleFactor * width;
 
-		gr.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			rasteriseRow(grid, r, palette, pixels, offset, scaleFactor);
+
+			for (int s = 1; s < scaleFactor; s++) {
+				System.arraycopy(pixels, offset, pixels, offset + (s * width), width);
+			}
+		}
+
+		return img;
+	}
+
+	/**
+	 * Draws the passed in grids one after another in rows, only one grid is
+	 * needed at a time so they can come from a lazy source such as
+	 * {@link ajb.factory.AssetStream}. Grids that don't fit are skipped, so an
+	 * endless source should be limited first, as are nulls left where a
+	 * budget ran out.
+	 *
+	 * @param grids
+	 *            {@link Iterable}
+	 * @param width
+	 *            {@link int}
+	 * @param height
+	 *            {@link int}
+	 * @param primaryColor
+	 *            {@link Color}
+	 * @param secondaryColor
+	 *            {@link Color}
+	 * @return {@link BufferedImage}
+	 */
+	public static BufferedImage outputAllToImage(Iterable<PixelGrid> grids, int width, int height, Color primaryColor, Color secondaryColor) {
+
+		// everything is drawn straight into the image's pixels, nothing here
+		// needs a screen or a graphics context so it all works headless
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		int[] pixels = pixelsOf(img);
 
 		// Fill background
-		gr.setColor(Color.decode("#1E1E1E"));
-		gr.fillRect(0, 0, width, height);
+		Arrays.fill(pixels, BACKGROUND);
 		
 		int x = 10;
 		int y = 10;
 		int maxYForLine = 0;
 
-		for (Pixel[][] grid : grids) {
+		RandomSource random = RandomSources.current();
+
+		for (PixelGrid grid : grids) {
+
+			if (grid == null) {
+				continue;
+			}
 
-			BufferedImage vesselImg = outputToImage(grid, primaryColor, secondaryColor);
+			int gridWidth = grid.getCols();
+			int gridHeight = grid.getRows();
 
-			if (x + (vesselImg.getWidth() + 10) > width) {
+			if (x + (gridWidth + 10) > width) {
 				x = 10;
 				y += maxYForLine + 10;
 				maxYForLine = 0;
 			}
 
-			if (y + (vesselImg.getHeight() + 10) > height) {
+			if (y + (gridHeight + 10) > height) {
 				continue;
 			}
 
-			gr.drawImage(vesselImg, x, y, null);
+			int[] gridPixels = new int[gridWidth * gridHeight];
+			render(grid, primaryColor, secondaryColor, random, GlowMode.GAUSSIAN, gridPixels);
+			drawOver(pixels, width, gridPixels, gridWidth, gridHeight, x, y);
 
-			x += vesselImg.getWidth() + 10;
+			x += gridWidth + 10;
 
-			if (vesselImg.getHeight() > maxYForLine) {
-				maxYForLine = vesselImg.getHeight();
+			if (gridHeight > maxYForLine) {
+				maxYForLine = gridHeight;
 			}
 		}
 
-		gr.dispose();
-
 		return img;
 	}
 
+	/**
+	 * Draws src over the opaque dst with its top left corner at x, y, cutting
+	 * off anything past the right hand edge, as drawing one image over the
+	 * other with {@link AlphaComposite#SRC_OVER} would
+	 */
+	private static void drawOver(int[] dst, int dstWidth, int[] src, int srcWidth, int srcHeight, int x, int y) {
+
+		int noOfCols = Math.min(srcWidth, dstWidth - x);
+
+		for (int r = 0; r < srcHeight; r++) {
+
+			int s = r * srcWidth;
+			int d = ((y + r) * dstWidth) + x;
+
+			for (int c = 0; c < noOfCols; c++, s++, d++) {
+
+				int over = src[s];
+				int srcA = over >>> 24;
+
+				if (srcA == 0) {
+					continue;
+				}
+
+				if (srcA == 255) {
+					dst[d] = over;
+					continue;
+				}
+
+				int under = dst[d];
+				int dstF = 255 - srcA;
+
+				int resR = mul8(srcA, (over >> 16) & 0xFF) + mul8(dstF, (under >> 16) & 0xFF);
+				int resG = mul8(srcA, (over >> 8) & 0xFF) + mul8(dstF, (under >> 8) & 0xFF);
+				int resB = mul8(srcA, over & 0xFF) + mul8(dstF, under & 0xFF);
+
+				dst[d] = 0xFF000000 | (resR << 16) | (resG << 8) | resB;
+			}
+		}
+	}
+
 	public static void save(BufferedImage image, String ext, String fileName) {
 
 		File file = new File(fileName + "." + ext);
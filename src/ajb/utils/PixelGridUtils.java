@@ -1,55 +1,58 @@
 package ajb.utils;
 
 import java.awt.Point;
+import java.util.Arrays;
 import java.util.List;
 
+import ajb.domain.FilledPixelIndex;
 import ajb.domain.Pixel;
-import ajb.random.RandomInt;
+import ajb.domain.PixelBitPlanes;
+import ajb.domain.PixelGrid;
+import ajb.domain.PixelGridArena;
 
 public class PixelGridUtils {
 
+	private static final int NONE = -1;
+
+	private static final int FILLED_BELOW = 1;
+	private static final int FILLED_ON_THE_RIGHT = 2;
+
 	/**
 	 * Returns true if the passed in point is within the boundaries of the
 	 * passed in grid i.e. in a grid initialise with 10 rows and 10 columns
 	 * points with x or y above 10 are not within the grid.
-	 * 
+	 *
 	 * @param point
 	 *            {@link Point}
 	 * @param grid
-	 *            {@link Pixel}[][]
+	 *            {@link PixelGrid}
 	 * @return {@link boolean}
 	 */
-	public static boolean isPointWithinGrid(Point point, Pixel[][] grid) {
+	public static boolean isPointWithinGrid(Point point, PixelGrid grid) {
 
-		try {
-			@SuppressWarnings("unused")
-			Pixel pixel = grid[point.x][point.y];
-			return true;
-		} catch (IndexOutOfBoundsException ioobe) {
-			return false;
-		}
+		return point.x >= 0 && point.x < grid.getRows() && point.y >= 0 && point.y < grid.getCols();
 
 	}
 
 	/**
 	 * Outputs the passed in grid to the console
-	 * 
+	 *
 	 * @param grid
-	 *            {@link Pixel}[][]
+	 *            {@link PixelGrid}
 	 */
-	public static void outputGridAsAscii(Pixel[][] grid) {
+	public static void outputGridAsAscii(PixelGrid grid) {
 
-		for (int x = 0; x < grid.length; x++) {
+		for (int x = 0; x < grid.getRows(); x++) {
 
 			StringBuilder strBld = new StringBuilder();
 
-			for (int y = 0; y < grid[0].length; y++) {
+			for (int y = 0; y < grid.getCols(); y++) {
 
-				if (grid[x][y].value == Pixel.EMPTY) {
+				if (grid.getValue(x, y) == Pixel.EMPTY) {
 					strBld.append(" ");
-				} else if (grid[x][y].value == Pixel.FILLED) {
+				} else if (grid.getValue(x, y) == Pixel.FILLED) {
 					strBld.append(".");
-				} else if (grid[x][y].value == Pixel.BORDER) {
+				} else if (grid.getValue(x, y) == Pixel.BORDER) {
 					strBld.append("x");
 				}
 			}
@@ -58,272 +61,253 @@ public class PixelGridUtils {
 		}
 	}
 
-	/**
-	 * Simply populates the passed in grid with {@link Pixel} objects
-	 * 
-	 * @param grid
-	 *            {@link Pixel}[][]
-	 * @param rows
-	 *            {@link int}
-	 * @param cols
-	 *            {@link int}
-	 */
-	public static void initEmptyGrid(Pixel[][] grid, int rows, int cols) {
-
-		for (int x = 0; x < rows; x++) {
-			for (int y = 0; y < cols; y++) {
-				grid[x][y] = new Pixel();
-			}
-		}
-	}
-
 	/**
 	 * Takes the passed in grid and returns a grid that has been floored i.e.
 	 * reduced so that rows and column with no filled pixels on them are removed
-	 * 
+	 *
+	 * The result is a view of the passed in grid. Grids that track the bounds
+	 * of their pixels are not scanned at all, otherwise rows and columns are
+	 * only scanned from the edges in until a filled one is found.
+	 *
+	 * Throws IllegalArgumentException if the grid has no non empty pixels, as
+	 * there is nothing to floor it to.
+	 *
 	 * @param grid
-	 *            {@link Pixel}[][]
-	 * @return {@link Pixel}[][]
+	 *            {@link PixelGrid}
+	 * @return {@link PixelGrid}
 	 */
-	public static Pixel[][] floor(Pixel[][] grid) {
-
-		Pixel[][] flooredGrid = null;
-
-		int lastFilledRow = 0;
-		int lastFilledCol = 0;
-		int firstFilledRow = grid.length;
-		int firstFilledColumn = grid[0].length;
-
-		for (int r = 0; r < grid.length; r++) {
-			boolean empty = true;
+	public static PixelGrid floor(PixelGrid grid) {
 
-			for (int c = 0; c < grid[0].length; c++) {
-				boolean colEmpty = true;
+		checkHasRowsAndCols(grid);
 
-				if (grid[r][c].value != Pixel.EMPTY) {
-					if (firstFilledRow > r) {
-						firstFilledRow = r;
-					}
-
-					if (firstFilledColumn > c) {
-						firstFilledColumn = c;
-					}
-
-					empty = false;
-					colEmpty = false;
-				}
-
-				if (!colEmpty && c > lastFilledCol) {
-					lastFilledCol = c;
-				}
-			}
-
-			if (!empty) {
-				lastFilledRow = r;
-			}
+		if (grid.hasTrackedBounds()) {
+			checkNotEmpty(grid.getLastNonEmptyRow() < 0);
+			return grid.crop(grid.getFirstNonEmptyRow(), grid.getFirstNonEmptyCol(),
+					grid.getLastNonEmptyRow() - (grid.getFirstNonEmptyRow() - 1),
+					grid.getLastNonEmptyCol() - (grid.getFirstNonEmptyCol() - 1));
 		}
 
-		flooredGrid = new Pixel[lastFilledRow - (firstFilledRow - 1)][lastFilledCol - (firstFilledColumn - 1)];
-
-		int newRow = 0;
-
-		for (int r = firstFilledRow; r < lastFilledRow + 1; r++) {
-			int newCol = 0;
-
-			for (int c = firstFilledColumn; c < lastFilledCol + 1; c++) {
-				flooredGrid[newRow][newCol] = grid[r][c];
-				newCol++;
-			}
-
-			newRow++;
-		}
+		int firstFilledRow = findFirstFilledRow(grid, 0, grid.getCols() - 1);
+		// the scan stops at the last row, which is only empty if all of them are
+		checkNotEmpty(isRowEmpty(grid, firstFilledRow, 0, grid.getCols() - 1));
+		int lastFilledRow = findLastFilledRow(grid, 0, grid.getCols() - 1);
+		int firstFilledColumn = findFirstFilledCol(grid, firstFilledRow, lastFilledRow);
+		int lastFilledCol = findLastFilledCol(grid, firstFilledRow, lastFilledRow);
 
-		return flooredGrid;
+		return grid.crop(firstFilledRow, firstFilledColumn, lastFilledRow - (firstFilledRow - 1), lastFilledCol - (firstFilledColumn - 1));
 	}
 
 	/**
 	 * Takes the passed in grid and returns a grid that contains the original
 	 * plus a mirrored copy
-	 * 
+	 *
 	 * @param halfGrid
-	 *            {@link Pixel}[][]
-	 * @return {@link Pixel}[][]
+	 *            {@link PixelGrid}
+	 * @return {@link PixelGrid}
 	 */
-	public static Pixel[][] mirrorCopyGridHorizontally(Pixel[][] halfGrid) {
+	public static PixelGrid mirrorCopyGridHorizontally(PixelGrid halfGrid) {
 
-		int rows = halfGrid.length;
-		int cols = (halfGrid[0].length * 2);
-
-		Pixel[][] fullGrid = new Pixel[rows][cols];
-
-		// Copy left to right
-		for (int r = 0; r < rows; r++) {
-			for (int c = 0; c < (cols / 2); c++) {
-				fullGrid[r][c] = halfGrid[r][c];
-				fullGrid[r][(cols - 1) - c] = halfGrid[r][c];
-			}
-		}
-
-		return fullGrid;
+		return halfGrid.mirrorHorizontally();
 	}
-	
+
 	/**
 	 * Takes the passed in grid and returns a grid that contains the original
 	 * plus a mirrored copy
-	 * 
+	 *
 	 * @param halfGrid
-	 *            {@link Pixel}[][]
-	 * @return {@link Pixel}[][]
+	 *            {@link PixelGrid}
+	 * @return {@link PixelGrid}
 	 */
-	public static Pixel[][] mirrorCopyGridVertically(Pixel[][] halfGrid) {
-
-		int rows = (halfGrid.length * 2);
-		int cols = halfGrid[0].length;
+	public static PixelGrid mirrorCopyGridVertically(PixelGrid halfGrid) {
 
-		Pixel[][] fullGrid = new Pixel[rows][cols];
-
-		// Copy left to right
-		for (int r = 0; r < rows / 2; r++) {
-			for (int c = 0; c < cols; c++) {
-				fullGrid[r][c] = halfGrid[r][c];
-				fullGrid[(rows - 1) - r][c] = halfGrid[r][c];
-			}
-		}
-
-		return fullGrid;
-	}	
+		return halfGrid.mirrorVertically();
+	}
 
 	/**
 	 * Takes the passed in grid extends it by 2 then puts a border pixel next to
 	 * every edge pixel i.e. pixels that do not have another filled pixel next
 	 * to them
-	 * 
+	 *
 	 * @param grid
-	 *            {@link Pixel}[][]
-	 * @return {@link Pixel}[][]
+	 *            {@link PixelGrid}
+	 * @return {@link PixelGrid}
 	 */
-	public static Pixel[][] addBorders(Pixel[][] grid) {
+	public static PixelGrid addBorders(PixelGrid grid) {
 
-		Pixel[][] result = PixelGridUtils.extendGrid(grid, 2);		
+		PixelGrid result = PixelGridUtils.extendGrid(grid, 2);
 
-		for (int r = 0; r < result.length; r++) {
-			for (int c = 0; c < result[0].length; c++) {
-				if (result[r][c].value == Pixel.FILLED) {
+		addBordersToExtendedGrid(result);
 
-					// Top
-					if (result[r == 0 ? 0 : r - 1][c].value != Pixel.FILLED && 
-							result[r == 0 ? 0 : r - 1][c].value != Pixel.SECONDARY) {
-						result[r == 0 ? 0 : r - 1][c].value = Pixel.BORDER;
-					}
+		return result;
+	}
 
-					// Left
-					if (result[r][c == 0 ? 0 : c - 1].value != Pixel.FILLED &&
-							result[r][c == 0 ? 0 : c - 1].value != Pixel.SECONDARY) {
-						result[r][c == 0 ? 0 : c - 1].value = Pixel.BORDER;
-					}
+	/**
+	 * Does the work of floor, mirrorCopyGridHorizontally and
+	 * mirrorCopyGridVertically the passed in number of times, addBorders and
+	 * floor again in one go. The grid is only floored as a view, then
+	 * mirrored and extended straight into a grid of the final size which the
+	 * borders are added to, so none of the grids in between are built.
+	 *
+	 * @param grid
+	 *            {@link PixelGrid}
+	 * @param floor
+	 *            {@link boolean} whether to floor before and after
+	 * @param noOfHorizontalMirrors
+	 *            {@link int}
+	 * @param noOfVerticalMirrors
+	 *            {@link int}
+	 * @return {@link PixelGrid}
+	 */
+	public static PixelGrid mirrorAndAddBorders(PixelGrid grid, boolean floor, int noOfHorizontalMirrors, int noOfVerticalMirrors) {
 
-					// Right
-					if (result[r][c == (result[0].length / 2) - 1 ? (result[0].length / 2) - 1 : c + 1].value != Pixel.FILLED &&
-							result[r][c == (result[0].length / 2) - 1 ? (result[0].length / 2) - 1 : c + 1].value != Pixel.SECONDARY) {
-						result[r][c == (result[0].length / 2) - 1 ? (result[0].length / 2) - 1 : c + 1].value = Pixel.BORDER;
-					}
+		if (floor) {
+			grid = floor(grid);
+		}
 
-					// Bottom
-					if (result[r == result.length - 1 ? result.length - 1 : r + 1][c].value != Pixel.FILLED &&
-							result[r == result.length - 1 ? result.length - 1 : r + 1][c].value != Pixel.SECONDARY) {
-						result[r == result.length - 1 ? result.length - 1 : r + 1][c].value = Pixel.BORDER;
-					}
-				}
-			}
+		PixelGrid result = grid.mirrorAndExtend(noOfHorizontalMirrors, noOfVerticalMirrors, 2);
+
+		addBordersToExtendedGrid(result);
+
+		if (floor) {
+			// only the new outer rows and columns can be empty, so this stops
+			// scanning almost straight away
+			result = floor(result);
 		}
 
 		return result;
 	}
 
+	/**
+	 * Puts a border pixel next to each filled pixel in the passed in grid,
+	 * which has already been extended. The filled pixels are found as bit
+	 * planes so the borders of 64 pixels are worked out at a time, and only
+	 * the pixels that become borders are set.
+	 *
+	 * @param result
+	 *            {@link PixelGrid}
+	 */
+	private static void addBordersToExtendedGrid(PixelGrid result) {
+
+		int rows = result.getRows();
+		int cols = result.getCols();
+
+		// the pixels of a mirrored grid have the same borders as their
+		// reflections, so only its top left needs going through
+		int rowsToVisit = result.isMirroredVertically() ? rows / 2 : rows;
+		int colsToVisit = result.isMirroredHorizontally() ? cols / 2 : cols;
+
+		PixelBitPlanes planes = PixelBitPlanes.fromGrid(result, rowsToVisit, colsToVisit);
+
+		// the pixel in the middle column never puts a border on its right
+		planes.writeTo(result, planes.addBorders((cols / 2) - 1));
+	}
+
 	/**
 	 * Takes the passed in grid and extends it by the passed in amount
-	 * 
+	 *
 	 * @param grid
-	 *            {@link Pixel}[][]
+	 *            {@link PixelGrid}
 	 * @param extendAmount
 	 *            {@link int}
-	 * @return {@link Pixel}[][]
+	 * @return {@link PixelGrid}
 	 */
-	public static Pixel[][] extendGrid(Pixel[][] grid, int extendAmount) {
-		Pixel[][] extendedGrid = new Pixel[grid.length + extendAmount][grid[0].length + extendAmount];
-		initEmptyGrid(extendedGrid, grid.length + extendAmount, grid[0].length + extendAmount);
+	public static PixelGrid extendGrid(PixelGrid grid, int extendAmount) {
 
-		for (int r = 0; r < grid.length; r++) {
-			for (int c = 0; c < grid[0].length; c++) {
-				extendedGrid[r + (extendAmount / 2)][c + (extendAmount / 2)] = grid[r][c];
-			}
-		}
-		
-		return extendedGrid;
+		return grid.extend(extendAmount);
 	}
 
 	/**
 	 * Loops through each pixel in the grid and works out if they are surrounded
 	 * by filled pixels i.e. a straight path through other pixels until it hits
 	 * a pixel of value Pixel.FILLED
-	 * 
+	 *
+	 * Rather than walking out from every empty pixel the first and last filled
+	 * pixel of each row and column are found up front, so each pixel can be
+	 * checked against them directly. The first row and column are never
+	 * treated as filled above or to the left of a pixel.
+	 *
+	 * Only the top left of a mirrored grid is gone through, the last filled
+	 * pixel in its rows and columns being the reflection of the first.
+	 *
+	 * Returns the number of pixels that were set to Pixel.SECONDARY, a pixel
+	 * shared by mirrored cells is only counted once.
+	 *
 	 * @param grid
-	 *            {@link Pixel}[][]
+	 *            {@link PixelGrid}
+	 * @return {@link int}
 	 */
-	public static void fillEmptySurroundedPixelsInGrid(Pixel[][] grid) {
+	public static int fillEmptySurroundedPixelsInGrid(PixelGrid grid) {
 
-		for (int r = 0; r < grid.length; r++) {
-			for (int c = 0; c < grid[0].length; c++) {
+		int rows = grid.getRows();
+		int cols = grid.getCols();
 
-				if (grid[r][c].value == Pixel.EMPTY) {
+		boolean mirroredVertically = grid.isMirroredVertically();
+		boolean mirroredHorizontally = grid.isMirroredHorizontally();
+		int rowsToVisit = mirroredVertically ? rows / 2 : rows;
+		int colsToVisit = mirroredHorizontally ? cols / 2 : cols;
 
-					boolean filledPixelAbove = false;
-					boolean filledPixelBelow = false;
-					boolean filledPixelOnTheLeft = false;
-					boolean filledPixelOnTheRight = false;
+		int[] firstFilledRowInCol = new int[cols];
+		int[] lastFilledRowInCol = new int[cols];
+		int[] firstFilledColInRow = new int[rows];
+		int[] lastFilledColInRow = new int[rows];
 
-					for (int r1 = r - 1; r1 > 0; r1--) {	
+		Arrays.fill(firstFilledRowInCol, rows);
+		Arrays.fill(lastFilledRowInCol, -1);
+		Arrays.fill(firstFilledColInRow, cols);
+		Arrays.fill(lastFilledColInRow, -1);
 
-						if (grid[r1][c].value == Pixel.FILLED) {
-							filledPixelAbove = true;
-							break;
-						}
+		for (int r = 0; r < rowsToVisit; r++) {
+			for (int c = 0; c < colsToVisit; c++) {
+
+				if (grid.getValue(r, c) == Pixel.FILLED) {
 
+					if (r > 0 && firstFilledRowInCol[c] == rows) {
+						firstFilledRowInCol[c] = r;
 					}
 
-					for (int r1 = r + 1; r1 < grid.length; r1++) {
+					if (c > 0 && firstFilledColInRow[r] == cols) {
+						firstFilledColInRow[r] = c;
+					}
 
-						if (grid[r1][c].value == Pixel.FILLED) {
-							filledPixelBelow = true;
-							break;
-						}
+					// the reflection of the first filled pixel is the last
+					if (mirroredVertically) {
+						lastFilledRowInCol[c] = Math.max(lastFilledRowInCol[c], (rows - 1) - r);
+					} else {
+						lastFilledRowInCol[c] = r;
+					}
 
+					if (mirroredHorizontally) {
+						lastFilledColInRow[r] = Math.max(lastFilledColInRow[r], (cols - 1) - c);
+					} else {
+						lastFilledColInRow[r] = c;
 					}
+				}
+			}
+		}
 
-					for (int c1 = c - 1; c1 > 0; c1--) {
+		int noOfFilledPixels = 0;
 
-						if (grid[r][c1].value == Pixel.FILLED) {
-							filledPixelOnTheLeft = true;
-							break;
-						}
+		for (int r = 0; r < rowsToVisit; r++) {
 
-					}
+			// nothing filled to both sides of anything on this row
+			if (firstFilledColInRow[r] >= lastFilledColInRow[r]) {
+				continue;
+			}
 
-					for (int c1 = c + 1; c1 < grid[0].length; c1++) {
-						
-						if (grid[r][c1].value == Pixel.FILLED) {
-							filledPixelOnTheRight = true;
-							break;
-						}
-						
-					}
+			int lastCol = Math.min(lastFilledColInRow[r], colsToVisit);
 
-					if (filledPixelAbove && filledPixelBelow && filledPixelOnTheLeft && filledPixelOnTheRight) {
-						grid[r][c].value = Pixel.SECONDARY;
-					}
+			for (int c = firstFilledColInRow[r] + 1; c < lastCol; c++) {
+
+				if (grid.getValue(r, c) == Pixel.EMPTY &&
+						firstFilledRowInCol[c] < r &&
+						lastFilledRowInCol[c] > r) {
+					grid.setValue(r, c, Pixel.SECONDARY);
+					noOfFilledPixels++;
 				}
 			}
 		}
+
+		return noOfFilledPixels;
 	}
 
 	/**
@@ -331,91 +315,201 @@ public class PixelGridUtils {
 	 * by filled pixels i.e. a straight path through other pixels until it hits
 	 * a pixel of value Pixel.FILLED without going over any pixels with value
 	 * Pixel.EMPTY
-	 * 
+	 *
+	 * The nearest empty or filled pixel below and to the right of each pixel
+	 * is found by sweeping backwards through the grid first, the nearest above
+	 * and to the left are tracked while sweeping forwards and adding the
+	 * noise. Noise only turns surrounded pixels into filled ones, which never
+	 * changes what the nearest pixel in any direction is for another pixel,
+	 * so the result is the same as walking out from every pixel. The one
+	 * exception is a grid whose pixels are shared other than with their
+	 * reflections about its centre, where the noise also lands on pixels
+	 * which need not be surrounded themselves, so once noise has filled a
+	 * pixel in such a grid pixels that do not look surrounded are walked out
+	 * from to make sure. The reflection of a surrounded pixel in a symmetric
+	 * grid is always surrounded too.
+	 *
 	 * @param grid
-	 *            {@link Pixel}[][]
+	 *            {@link PixelGrid}
 	 */
-	public static void addNoiseToFlatPixels(Pixel[][] grid) {
+	public static void addNoiseToFlatPixels(PixelGrid grid) {
 
-		for (int r = 0; r < grid.length; r++) {
-			for (int c = 0; c < grid[0].length; c++) {
+		addNoiseToFlatPixels(grid, RandomSources.current());
+	}
 
-				if (grid[r][c].value == Pixel.SECONDARY) {
+	/**
+	 * As {@link #addNoiseToFlatPixels(PixelGrid)} drawing the noise from the
+	 * passed in source
+	 *
+	 * @param grid
+	 *            {@link PixelGrid}
+	 * @param random
+	 *            {@link RandomSource}
+	 */
+	public static void addNoiseToFlatPixels(PixelGrid grid, RandomSource random) {
 
-					boolean filledPixelAbove = false;
-					boolean filledPixelBelow = false;
-					boolean filledPixelOnTheLeft = false;
-					boolean filledPixelOnTheRight = false;
+		int rows = grid.getRows();
+		int cols = grid.getCols();
 
-					for (int r1 = r - 1; r1 > 0; r1--) {
-						if (grid[r1][c].value == Pixel.EMPTY) {
-							filledPixelAbove = false;
-							break;
-						} else if (grid[r1][c].value == Pixel.FILLED) {
-							filledPixelAbove = true;
-							break;
-						}
-					}
+		// flags for the pixels with a filled pixel nearest below / on the right
+		byte[] filledBelowAndRight = PixelGridArena.get().takeValues(rows * cols);
+		int[] nearestInCol = new int[cols];
 
-					for (int r1 = r + 1; r1 < grid.length; r1++) {
-						if (grid[r1][c].value == Pixel.EMPTY) {
-							filledPixelBelow = false;
-							break;
-						} else if (grid[r1][c].value == Pixel.FILLED) {
-							filledPixelBelow = true;
-							break;
-						}
-					}
+		Arrays.fill(nearestInCol, NONE);
 
-					for (int c1 = c - 1; c1 > 0; c1--) {
-						if (grid[r][c1].value == Pixel.EMPTY) {
-							filledPixelOnTheLeft = false;
-							break;
-						} else if (grid[r][c1].value == Pixel.FILLED) {
-							filledPixelOnTheLeft = true;
-							break;
-						}
-					}
+		for (int r = rows - 1; r >= 0; r--) {
 
-					for (int c1 = c + 1; c1 < grid[0].length; c1++) {
-						if (grid[r][c1].value == Pixel.EMPTY) {
-							filledPixelOnTheLeft = false;
-							break;
-						} else if (grid[r][c1].value == Pixel.FILLED) {
-							filledPixelOnTheRight = true;
-							break;
-						}
-					}
+			int nearestInRow = NONE;
+
+			for (int c = cols - 1; c >= 0; c--) {
+
+				int flags = 0;
+
+				if (nearestInCol[c] == Pixel.FILLED) {
+					flags |= FILLED_BELOW;
+				}
+
+				if (nearestInRow == Pixel.FILLED) {
+					flags |= FILLED_ON_THE_RIGHT;
+				}
+
+				filledBelowAndRight[(r * cols) + c] = (byte) flags;
+
+				int pixelValue = grid.getValue(r, c);
+
+				if (pixelValue == Pixel.EMPTY || pixelValue == Pixel.FILLED) {
+					nearestInCol[c] = pixelValue;
+					nearestInRow = pixelValue;
+				}
+			}
+		}
 
-					if (filledPixelAbove && filledPixelBelow && filledPixelOnTheLeft && filledPixelOnTheRight) {
+		Arrays.fill(nearestInCol, NONE);
 
-						grid[r][c].value = Pixel.SECONDARY;
+		boolean walkSharedPixels = grid.hasSharedPixels() && !grid.isMirroredHorizontally() && !grid.isMirroredVertically();
+		boolean noiseFilledSharedPixel = false;
 
-						int random = RandomInt.anyRandomIntRange(1, 100);
+		for (int r = 0; r < rows; r++) {
+
+			int nearestInRow = NONE;
+
+			for (int c = 0; c < cols; c++) {
+
+				int pixelValue = grid.getValue(r, c);
+
+				if (pixelValue == Pixel.SECONDARY) {
+
+					boolean surrounded = nearestInCol[c] == Pixel.FILLED &&
+							nearestInRow == Pixel.FILLED &&
+							filledBelowAndRight[(r * cols) + c] == (FILLED_BELOW | FILLED_ON_THE_RIGHT);
+
+					if (!surrounded && noiseFilledSharedPixel) {
+						surrounded = isSurroundedByFilledPixels(grid, r, c);
+					}
+
+					if (surrounded) {
 
-						if (random < 10) {
-							grid[r][c].value = Pixel.BORDER;
-						} else if (random > 90) {
-							grid[r][c].value = Pixel.FILLED;
+						int noise = random.anyRandomIntRange(1, 100);
+
+						if (noise < 10) {
+							grid.setValue(r, c, Pixel.BORDER);
+						} else if (noise > 90) {
+							grid.setValue(r, c, Pixel.FILLED);
+							noiseFilledSharedPixel = walkSharedPixels;
 						}
+
+						pixelValue = grid.getValue(r, c);
 					}
 				}
+
+				// the first row and column are never looked at above or on the
+				// left of a pixel
+				if (r > 0 && (pixelValue == Pixel.EMPTY || pixelValue == Pixel.FILLED)) {
+					nearestInCol[c] = pixelValue;
+				}
+
+				if (c > 0 && (pixelValue == Pixel.EMPTY || pixelValue == Pixel.FILLED)) {
+					nearestInRow = pixelValue;
+				}
 			}
 		}
+
+		PixelGridArena.get().giveBack(filledBelowAndRight);
+	}
+
+	/**
+	 * Returns true if the nearest pixel that is either Pixel.EMPTY or
+	 * Pixel.FILLED above, below, to the left and to the right of the passed in
+	 * pixel is Pixel.FILLED
+	 *
+	 * @param grid
+	 *            {@link PixelGrid}
+	 * @param r
+	 *            {@link int}
+	 * @param c
+	 *            {@link int}
+	 * @return {@link boolean}
+	 */
+	private static boolean isSurroundedByFilledPixels(PixelGrid grid, int r, int c) {
+
+		int nearest = NONE;
+
+		for (int r1 = r - 1; r1 > 0 && nearest == NONE; r1--) {
+			nearest = nearestPixelValue(grid.getValue(r1, c));
+		}
+
+		if (nearest != Pixel.FILLED) {
+			return false;
+		}
+
+		nearest = NONE;
+
+		for (int r1 = r + 1; r1 < grid.getRows() && nearest == NONE; r1++) {
+			nearest = nearestPixelValue(grid.getValue(r1, c));
+		}
+
+		if (nearest != Pixel.FILLED) {
+			return false;
+		}
+
+		nearest = NONE;
+
+		for (int c1 = c - 1; c1 > 0 && nearest == NONE; c1--) {
+			nearest = nearestPixelValue(grid.getValue(r, c1));
+		}
+
+		if (nearest != Pixel.FILLED) {
+			return false;
+		}
+
+		nearest = NONE;
+
+		for (int c1 = c + 1; c1 < grid.getCols() && nearest == NONE; c1++) {
+			nearest = nearestPixelValue(grid.getValue(r, c1));
+		}
+
+		return nearest == Pixel.FILLED;
+	}
+
+	private static int nearestPixelValue(int pixelValue) {
+		return pixelValue == Pixel.EMPTY || pixelValue == Pixel.FILLED ? pixelValue : NONE;
+	}
+
+	public static Point getRandomFilledPoint(PixelGrid grid) {
+
+		return getRandomFilledPoint(grid, RandomSources.current());
 	}
 
-	public static Point getRandomFilledPoint(Pixel[][] grid) {
+	public static Point getRandomFilledPoint(PixelGrid grid, RandomSource random) {
 
 		Point point = null;
 
 		while (point == null) {
 
-			int x = RandomInt.anyRandomIntRange(1, grid.length - 1);
-			int y = RandomInt.anyRandomIntRange(1, grid[0].length - 1);
+			int x = random.anyRandomIntRange(1, grid.getRows() - 1);
+			int y = random.anyRandomIntRange(1, grid.getCols() - 1);
 
-			Pixel possiblePixel = grid[x][y];
-
-			if (possiblePixel.value == Pixel.FILLED) {
+			if (grid.getValue(x, y) == Pixel.FILLED) {
 				point = new Point();
 				point.x = x;
 				point.y = y;
@@ -426,7 +520,43 @@ public class PixelGridUtils {
 
 	}
 
-	public static void mergeGridsRandomly(Pixel[][] sourceGrid, Pixel[][] targetGrid) {
+	/**
+	 * Returns a random filled point using the passed in index of the grid's
+	 * filled pixels rather than searching the grid. As with
+	 * {@link #getRandomFilledPoint(PixelGrid)} points on the first row or
+	 * column are never returned.
+	 *
+	 * @param index
+	 *            {@link FilledPixelIndex}
+	 * @return {@link Point}
+	 */
+	public static Point getRandomFilledPoint(FilledPixelIndex index) {
+
+		return getRandomFilledPoint(index, RandomSources.current());
+	}
+
+	public static Point getRandomFilledPoint(FilledPixelIndex index, RandomSource random) {
+
+		Point point = null;
+
+		while (point == null) {
+
+			int i = random.anyRandomIntRange(0, index.size() - 1);
+
+			if (index.getX(i) > 0 && index.getY(i) > 0) {
+				point = new Point(index.getX(i), index.getY(i));
+			}
+		}
+
+		return point;
+	}
+
+	public static void mergeGridsRandomly(PixelGrid sourceGrid, PixelGrid targetGrid) {
+
+		mergeGridsRandomly(sourceGrid, targetGrid, RandomSources.current());
+	}
+
+	public static void mergeGridsRandomly(PixelGrid sourceGrid, PixelGrid targetGrid, RandomSource random) {
 
 		int attempts = 0;
 
@@ -434,9 +564,9 @@ public class PixelGridUtils {
 
 		while (targetPoint == null && attempts < 10) {
 
-			Point potentialPoint = getRandomFilledPoint(targetGrid);
-			potentialPoint.x = potentialPoint.x - sourceGrid.length - 1;
-			potentialPoint.y = potentialPoint.y - sourceGrid[0].length - 1;
+			Point potentialPoint = getRandomFilledPoint(targetGrid, random);
+			potentialPoint.x = potentialPoint.x - sourceGrid.getRows() - 1;
+			potentialPoint.y = potentialPoint.y - sourceGrid.getCols() - 1;
 
 			if (isPointWithinGrid(potentialPoint, targetGrid)) {
 				targetPoint = potentialPoint;
@@ -449,9 +579,9 @@ public class PixelGridUtils {
 
 			int startY = targetPoint.y;
 
-			for (int r = 0; r < sourceGrid.length; r++) {
-				for (int c = 0; c < sourceGrid[0].length; c++) {
-					targetGrid[targetPoint.x][targetPoint.y].value = sourceGrid[r][c].value;
+			for (int r = 0; r < sourceGrid.getRows(); r++) {
+				for (int c = 0; c < sourceGrid.getCols(); c++) {
+					targetGrid.setValue(targetPoint.x, targetPoint.y, sourceGrid.getValue(r, c));
 					targetPoint.y = targetPoint.y + 1;
 				}
 
@@ -461,170 +591,265 @@ public class PixelGridUtils {
 		}
 	}
 
-	public static Pixel[][] floorHorizontally(Pixel[][] grid) {
+	public static PixelGrid floorHorizontally(PixelGrid grid) {
 
-		Pixel[][] flooredGrid = null;
+		checkHasRowsAndCols(grid);
 
-		int lastFilledCol = 0;
-		int firstFilledColumn = grid[0].length;
+		int firstFilledColumn;
+		int lastFilledCol;
 
-		for (int r = 0; r < grid.length; r++) {
-			for (int c = 0; c < grid[0].length; c++) {
-				boolean colEmpty = true;
+		if (grid.hasTrackedBounds()) {
+			checkNotEmpty(grid.getLastNonEmptyCol() < 0);
+			firstFilledColumn = grid.getFirstNonEmptyCol();
+			lastFilledCol = grid.getLastNonEmptyCol();
+		} else {
+			firstFilledColumn = findFirstFilledCol(grid, 0, grid.getRows() - 1);
+			checkNotEmpty(isColEmpty(grid, firstFilledColumn, 0, grid.getRows() - 1));
+			lastFilledCol = findLastFilledCol(grid, 0, grid.getRows() - 1);
+		}
 
-				if (grid[r][c].value != Pixel.EMPTY) {
+		return grid.crop(0, firstFilledColumn, grid.getRows(), lastFilledCol - (firstFilledColumn - 1));
+	}
 
-					if (firstFilledColumn > c) {
-						firstFilledColumn = c;
-					}
+	public static PixelGrid floorVertically(PixelGrid grid) {
 
-					colEmpty = false;
-				}
+		checkHasRowsAndCols(grid);
 
-				if (!colEmpty && c > lastFilledCol) {
-					lastFilledCol = c;
-				}
-			}
+		int firstFilledRow;
+		int lastFilledRow;
+
+		if (grid.hasTrackedBounds()) {
+			checkNotEmpty(grid.getLastNonEmptyRow() < 0);
+			firstFilledRow = grid.getFirstNonEmptyRow();
+			lastFilledRow = grid.getLastNonEmptyRow();
+		} else {
+			firstFilledRow = findFirstFilledRow(grid, 0, grid.getCols() - 1);
+			checkNotEmpty(isRowEmpty(grid, firstFilledRow, 0, grid.getCols() - 1));
+			lastFilledRow = findLastFilledRow(grid, 0, grid.getCols() - 1);
 		}
 
-		flooredGrid = new Pixel[grid.length][lastFilledCol - (firstFilledColumn - 1)];
+		return grid.crop(firstFilledRow, 0, lastFilledRow - (firstFilledRow - 1), grid.getCols());
+	}
 
-		int newRow = 0;
+	private static void checkHasRowsAndCols(PixelGrid grid) {
 
-		for (int r = 0; r < grid.length; r++) {
-			int newCol = 0;
+		if (grid.getRows() < 1 || grid.getCols() < 1) {
+			throw new IllegalArgumentException("grid must have at least one row and column to floor");
+		}
+	}
 
-			for (int c = firstFilledColumn; c < lastFilledCol + 1; c++) {
-				flooredGrid[newRow][newCol] = grid[r][c];
-				newCol++;
-			}
+	private static void checkNotEmpty(boolean empty) {
 
-			newRow++;
+		if (empty) {
+			throw new IllegalArgumentException("grid has no non empty pixels to floor to");
 		}
-
-		return flooredGrid;
 	}
 
-	public static Pixel[][] floorVertically(Pixel[][] grid) {
+	private static int findFirstFilledRow(PixelGrid grid, int firstCol, int lastCol) {
 
-		Pixel[][] flooredGrid = null;
+		int r = 0;
 
-		int lastFilledRow = 0;
-		int firstFilledRow = grid.length;
+		while (r < grid.getRows() - 1 && isRowEmpty(grid, r, firstCol, lastCol)) {
+			r++;
+		}
 
-		for (int r = 0; r < grid.length; r++) {
-			boolean empty = true;
+		return r;
+	}
 
-			for (int c = 0; c < grid[0].length; c++) {
+	private static int findLastFilledRow(PixelGrid grid, int firstCol, int lastCol) {
 
-				if (grid[r][c].value != Pixel.EMPTY) {
-					if (firstFilledRow > r) {
-						firstFilledRow = r;
-					}
+		int r = grid.getRows() - 1;
 
-					empty = false;
-				}
-			}
+		while (r > 0 && isRowEmpty(grid, r, firstCol, lastCol)) {
+			r--;
+		}
 
-			if (!empty) {
-				lastFilledRow = r;
-			}
+		return r;
+	}
+
+	private static int findFirstFilledCol(PixelGrid grid, int firstRow, int lastRow) {
+
+		int c = 0;
+
+		while (c < grid.getCols() - 1 && isColEmpty(grid, c, firstRow, lastRow)) {
+			c++;
 		}
 
-		flooredGrid = new Pixel[lastFilledRow - (firstFilledRow - 1)][grid[0].length];
+		return c;
+	}
+
+	private static int findLastFilledCol(PixelGrid grid, int firstRow, int lastRow) {
+
+		int c = grid.getCols() - 1;
+
+		while (c > 0 && isColEmpty(grid, c, firstRow, lastRow)) {
+			c--;
+		}
 
-		int newRow = 0;
+		return c;
+	}
 
-		for (int r = firstFilledRow; r < lastFilledRow + 1; r++) {
-			int newCol = 0;
+	private static boolean isRowEmpty(PixelGrid grid, int r, int firstCol, int lastCol) {
 
-			for (int c = 0; c < grid[0].length; c++) {
-				flooredGrid[newRow][newCol] = grid[r][c];
-				newCol++;
+		for (int c = firstCol; c <= lastCol; c++) {
+			if (grid.getValue(r, c) != Pixel.EMPTY) {
+				return false;
 			}
+		}
+
+		return true;
+	}
+
+	private static boolean isColEmpty(PixelGrid grid, int c, int firstRow, int lastRow) {
 
-			newRow++;
+		for (int r = firstRow; r <= lastRow; r++) {
+			if (grid.getValue(r, c) != Pixel.EMPTY) {
+				return false;
+			}
 		}
 
-		return flooredGrid;
+		return true;
 	}
 
-	public static Pixel[][] combineGrids(List<Pixel[][]> grids) {
+	public static PixelGrid combineGrids(List<PixelGrid> grids) {
 
 		int maxRows = 0;
-		int maxCols = grids.get(0)[0].length;
+		int maxCols = grids.get(0).getCols();
 
-		for (Pixel[][] grid : grids) {
-			maxRows += grid.length;
+		for (PixelGrid grid : grids) {
+			maxRows += grid.getRows();
 		}
 
-		Pixel[][] combinedGrid = new Pixel[maxRows][maxCols];
-		initEmptyGrid(combinedGrid, maxRows, maxCols);
+		PixelGrid combinedGrid = new PixelGrid(maxRows, maxCols);
 
 		int startingRow = 0;
 
-		for (Pixel[][] grid : grids) {
-			for (int r = 0; r < grid.length; r++) {
+		for (PixelGrid grid : grids) {
+			for (int r = 0; r < grid.getRows(); r++) {
 				for (int c = 0; c < maxCols; c++) {
 
-					combinedGrid[startingRow + r][c].value = grid[r][c].value;
+					combinedGrid.setValue(startingRow + r, c, grid.getValue(r, c));
 				}
 			}
 
-			startingRow += grid.length;
+			startingRow += grid.getRows();
 		}
 
 		return combinedGrid;
 	}
 
-	public static void setPixelDepth(Pixel[][] grid) {
-		for (int r = 0; r < grid.length; r++) {
-			for (int c = 0; c < grid[0].length; c++) {
-
-				if (grid[r][c].value != Pixel.EMPTY && 
-						grid[r][c].value != Pixel.BORDER) {
-					
-					int pixelValue = grid[r][c].value;
-	
-					int noOfSamePixelsAbove = 0;
-					int noOfSamePixelsBelow = 0;
-					int noOfSamePixelsOnTheLeft = 0;
-					int noOfSamePixelsOnTheRight = 0;
-	
-					for (int r1 = r - 1; r1 > 0; r1--) {
-						if (pixelValue == grid[r1][c].value) {
-							noOfSamePixelsAbove++;
-						}
+	/**
+	 * Sets the depth of every filled and secondary pixel to the smallest
+	 * number of pixels of the same type found above, below, to the left or to
+	 * the right of it. As with the other scans the first row and column are
+	 * not counted above or to the left of a pixel.
+	 *
+	 * The number of each pixel type in every row and column is counted once up
+	 * front and running counts are kept while scanning, so the counts in each
+	 * direction are worked out without walking the row or column.
+	 *
+	 * Only the top left of a mirrored grid is gone through. Each pixel there
+	 * is given the depth its last reflection would be, as that is the one a
+	 * scan of the whole grid leaves in the pixel they share.
+	 *
+	 * @param grid
+	 *            {@link PixelGrid}
+	 */
+	public static void setPixelDepth(PixelGrid grid) {
+
+		int rows = grid.getRows();
+		int cols = grid.getCols();
+
+		boolean mirroredVertically = grid.isMirroredVertically();
+		boolean mirroredHorizontally = grid.isMirroredHorizontally();
+		int rowsToVisit = mirroredVertically ? rows / 2 : rows;
+		int colsToVisit = mirroredHorizontally ? cols / 2 : cols;
+
+		// indexed by pixel type then by column or row
+		int[][] noOfPixelsInCol = new int[4][cols];
+		int[][] noOfPixelsInRow = new int[4][rows];
+		int[][] noOfPixelsAboveInCol = new int[4][cols];
+		int[] noOfPixelsOnTheLeft = new int[4];
+
+		for (int r = 0; r < rowsToVisit; r++) {
+			for (int c = 0; c < colsToVisit; c++) {
+				int pixelValue = grid.getValue(r, c);
+				noOfPixelsInCol[pixelValue][c] += mirroredVertically ? 2 : 1;
+				noOfPixelsInRow[pixelValue][r] += mirroredHorizontally ? 2 : 1;
+			}
+		}
+
+		for (int r = 0; r < rowsToVisit; r++) {
+
+			Arrays.fill(noOfPixelsOnTheLeft, 0);
+
+			int firstPixelValueInRow = grid.getValue(r, 0);
+
+			for (int c = 0; c < colsToVisit; c++) {
+
+				int pixelValue = grid.getValue(r, c);
+
+				if (pixelValue != Pixel.EMPTY &&
+						pixelValue != Pixel.BORDER) {
+
+					int noOfSamePixelsInCol = noOfPixelsInCol[pixelValue][c];
+					int noOfSamePixelsInRow = noOfPixelsInRow[pixelValue][r];
+					int noOfSamePixelsInFirstRow = grid.getValue(0, c) == pixelValue ? 1 : 0;
+					int noOfSamePixelsInFirstCol = firstPixelValueInRow == pixelValue ? 1 : 0;
+
+					int noOfSamePixelsAbove = noOfPixelsAboveInCol[pixelValue][c];
+					int noOfSamePixelsBelow = noOfSamePixelsInCol - noOfSamePixelsAbove - 1;
+					int noOfSamePixelsOnTheLeft = noOfPixelsOnTheLeft[pixelValue];
+					int noOfSamePixelsOnTheRight = noOfSamePixelsInRow - noOfSamePixelsOnTheLeft - 1;
+
+					// the first row and column are only left out when looking
+					// up and left
+					if (r > 0) {
+						noOfSamePixelsBelow -= noOfSamePixelsInFirstRow;
 					}
-	
-					for (int r1 = r + 1; r1 < grid.length; r1++) {
-						if (pixelValue == grid[r1][c].value) {
-							noOfSamePixelsBelow++;
-						}
+
+					if (c > 0) {
+						noOfSamePixelsOnTheRight -= noOfSamePixelsInFirstCol;
 					}
-	
-					for (int c1 = c - 1; c1 > 0; c1--) {
-						if (pixelValue == grid[r][c1].value) {
-							noOfSamePixelsOnTheLeft++;
-						}
+
+					if (mirroredVertically) {
+						// counted from the reflection in the bottom half, what
+						// is above it is what is below this pixel bar the
+						// first and last rows, which are reflections too
+						int noOfSamePixelsUpToHere = (r > 0 ? noOfSamePixelsInFirstRow : 0) + noOfSamePixelsAbove + 1;
+						noOfSamePixelsAbove = noOfSamePixelsInCol - noOfSamePixelsInFirstRow - noOfSamePixelsUpToHere;
+						noOfSamePixelsBelow = noOfSamePixelsInCol - noOfSamePixelsAbove - 1 - noOfSamePixelsInFirstRow;
 					}
-	
-					for (int c1 = c + 1; c1 < grid[0].length; c1++) {
-						if (pixelValue == grid[r][c1].value) {
-							noOfSamePixelsOnTheRight++;
-						}
+
+					if (mirroredHorizontally) {
+						int noOfSamePixelsUpToHere = (c > 0 ? noOfSamePixelsInFirstCol : 0) + noOfSamePixelsOnTheLeft + 1;
+						noOfSamePixelsOnTheLeft = noOfSamePixelsInRow - noOfSamePixelsInFirstCol - noOfSamePixelsUpToHere;
+						noOfSamePixelsOnTheRight = noOfSamePixelsInRow - noOfSamePixelsOnTheLeft - 1 - noOfSamePixelsInFirstCol;
 					}
-	
+
 					int depth1 = Math.min(noOfSamePixelsAbove, noOfSamePixelsBelow);
 					int depth2 = Math.min(noOfSamePixelsOnTheLeft, noOfSamePixelsOnTheRight);
-	
-					grid[r][c].depth = Math.min(depth1, depth2);
+
+					grid.setDepth(r, c, Math.min(depth1, depth2));
+				}
+
+				if (r > 0) {
+					noOfPixelsAboveInCol[pixelValue][c]++;
+				}
+
+				if (c > 0) {
+					noOfPixelsOnTheLeft[pixelValue]++;
 				}
 			}
 		}
 	}
-	
-	public static Point getRandomAdjacentPoint(Point point, Pixel[][] grid) {
+
+	public static Point getRandomAdjacentPoint(Point point, PixelGrid grid) {
+
+		return getRandomAdjacentPoint(point, grid, RandomSources.current());
+	}
+
+	public static Point getRandomAdjacentPoint(Point point, PixelGrid grid, RandomSource random) {
 
 		// top
 		Point pointTop = new Point(point.x - 1, point.y);
@@ -688,7 +913,7 @@ public class PixelGridUtils {
 		Point newPoint = null;
 
 		while (newPoint == null) {
-			int ri = RandomInt.anyRandomIntRange(0, neighbours.length - 1);
+			int ri = random.anyRandomIntRange(0, neighbours.length - 1);
 
 			if (neighbours[ri] != null) {
 				newPoint = neighbours[ri];
@@ -697,29 +922,29 @@ public class PixelGridUtils {
 
 		return newPoint;
 	}
-	
-	public static void removePixelsByType(Pixel[][] grid, int type) {
-		for (int r = 0; r < grid.length; r++) {
-			for (int c = 0; c < grid[0].length; c++) {
-				if (grid[r][c].value == type) {
-					grid[r][c].value = Pixel.EMPTY;
+
+	public static void removePixelsByType(PixelGrid grid, int type) {
+		for (int r = 0; r < grid.getRows(); r++) {
+			for (int c = 0; c < grid.getCols(); c++) {
+				if (grid.getValue(r, c) == type) {
+					grid.setValue(r, c, Pixel.EMPTY);
 				}
 			}
 		}
 	}
-	
-	public static int countPixelsByType(Pixel[][] grid, int type) {
-		
+
+	public static int countPixelsByType(PixelGrid grid, int type) {
+
 		int result = 0;
-		
-		for (int r = 0; r < grid.length; r++) {
-			for (int c = 0; c < grid[0].length; c++) {
-				if (grid[r][c].value == type) {
+
+		for (int r = 0; r < grid.getRows(); r++) {
+			for (int c = 0; c < grid.getCols(); c++) {
+				if (grid.getValue(r, c) == type) {
 					result++;
 				}
 			}
 		}
-		
+
 		return result;
-	}	
+	}
 }
@@ -48,8 +48,6 @@ public class PixelUtils {
 	public final static int ALPHA = 19;
 	public final static int ALPHA_TO_GRAY = 20;
 
-	private static Random randomGenerator = new Random();
-
 	/**
 	 * Clamp a value to the range 0..255
 	 */
@@ -140,7 +138,7 @@ public class PixelUtils {
 			b1 = clamp(b1*b2/255);
 			break;
 		case DISSOLVE:
-			if ((randomGenerator.nextInt() & 0xff) <= a1) {
+			if (RandomSources.current().anyRandomIntRange(0, 255) <= a1) {
 				r1 = r2;
 				g1 = g2;
 				b1 = b2;
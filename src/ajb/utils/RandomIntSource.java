@@ -0,0 +1,22 @@
+package ajb.utils;
+
+import ajb.random.RandomInt;
+
+/**
+ * Draws from the random numbers shared by everything that uses
+ * {@link RandomInt}. Every thread contends on the same state, so it is only
+ * worth setting as the default through {@link RandomSources} when output
+ * has to match what {@link RandomInt} alone would give.
+ */
+public class RandomIntSource implements RandomSource {
+
+	public static final RandomIntSource INSTANCE = new RandomIntSource();
+
+	private RandomIntSource() {
+	}
+
+	@Override
+	public int anyRandomIntRange(int min, int max) {
+		return RandomInt.anyRandomIntRange(min, max);
+	}
+}
@@ -0,0 +1,21 @@
+package ajb.utils;
+
+/**
+ * Somewhere to draw random numbers from. Generation is handed one of these
+ * rather than going to {@link ajb.random.RandomInt} directly, so that it can
+ * be given a seeded source of its own and be repeated exactly, or draw from
+ * a source per thread rather than one shared by all of them.
+ */
+public interface RandomSource {
+
+	/**
+	 * Returns a random int between min and max, both inclusive
+	 *
+	 * @param min
+	 *            {@link int}
+	 * @param max
+	 *            {@link int}
+	 * @return {@link int}
+	 */
+	int anyRandomIntRange(int min, int max);
+}
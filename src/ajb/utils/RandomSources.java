@@ -0,0 +1,68 @@
+package ajb.utils;
+
+/**
+ * Decides where generation without a seed draws its random numbers from.
+ *
+ * By default every thread gets a {@link SeededRandomSource} of its own, seeded
+ * once from a shared seeder when the thread first asks, so threads generating
+ * at the same time never touch the same random state. A single shared source,
+ * such as {@link RandomIntSource#INSTANCE}, can be set in its place.
+ */
+public final class RandomSources {
+
+	private static final SeededRandomSource SEEDER = new SeededRandomSource(System.currentTimeMillis() ^ System.nanoTime());
+
+	private static final ThreadLocal<SeededRandomSource> PER_THREAD = new ThreadLocal<SeededRandomSource>() {
+		@Override
+		protected SeededRandomSource initialValue() {
+			return new SeededRandomSource(nextSeed());
+		}
+	};
+
+	private static volatile RandomSource sharedSource = null;
+
+	private RandomSources() {
+	}
+
+	/**
+	 * Returns the source the current thread should draw from. A per-thread
+	 * source must only be used by the thread that asked for it.
+	 *
+	 * @return {@link RandomSource}
+	 */
+	public static RandomSource current() {
+
+		RandomSource source = sharedSource;
+
+		if (source != null) {
+			return source;
+		}
+
+		return PER_THREAD.get();
+	}
+
+	/**
+	 * Makes every thread draw from the passed in source, it must be thread
+	 * safe. Passing null goes back to a source per thread.
+	 *
+	 * @param source
+	 *            {@link RandomSource}
+	 */
+	public static void setDefault(RandomSource source) {
+		sharedSource = source;
+	}
+
+	/**
+	 * Seeds are taken from the output of the seeder rather than its state, so
+	 * threads seeded one after another don't end up on overlapping runs of the
+	 * same sequence
+	 *
+	 * @return {@link long}
+	 */
+	private static long nextSeed() {
+
+		synchronized (SEEDER) {
+			return SEEDER.nextLong();
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package ajb.utils;
+
+/**
+ * Walks randomly around a grid one pixel at a time, moving up, down, left or
+ * right to a pixel that is within the grid.
+ *
+ * The position is held as plain ints and each direction only needs two random
+ * bits, so one random number covers many steps and walking allocates nothing.
+ */
+public class RandomWalker {
+
+	// top, bottom, left, right
+	private static final int[] ROW_STEPS = { -1, 1, 0, 0 };
+	private static final int[] COL_STEPS = { 0, 0, -1, 1 };
+
+	private static final int BITS_PER_RANDOM = 30;
+
+	private final int rows;
+	private final int cols;
+	private final RandomSource random;
+
+	private int x;
+	private int y;
+
+	private int randomBits = 0;
+	private int noOfRandomBits = 0;
+
+	public RandomWalker(int rows, int cols) {
+		this(rows, cols, RandomSources.current());
+	}
+
+	public RandomWalker(int rows, int cols, RandomSource random) {
+		this.rows = rows;
+		this.cols = cols;
+		this.random = random;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	public void moveTo(int x, int y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Moves to a random neighbouring pixel, every neighbour within the grid
+	 * is equally likely
+	 */
+	public void step() {
+
+		while (true) {
+
+			if (noOfRandomBits == 0) {
+				randomBits = random.anyRandomIntRange(0, (1 << BITS_PER_RANDOM) - 1);
+				noOfRandomBits = BITS_PER_RANDOM;
+			}
+
+			int direction = randomBits & 3;
+			randomBits >>>= 2;
+			noOfRandomBits -= 2;
+
+			int newX = x + ROW_STEPS[direction];
+			int newY = y + COL_STEPS[direction];
+
+			// a step off the grid is simply drawn again
+			if ((newX >= 0) & (newX < rows) & (newY >= 0) & (newY < cols)) {
+				x = newX;
+				y = newY;
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package ajb.utils;
+
+/**
+ * A source of random numbers that is fully decided by its seed, so the same
+ * seed always gives the same numbers in the same order, on any thread and
+ * however many other sources are in use at the same time.
+ *
+ * Numbers come from the SplitMix64 generator, which keeps a single long of
+ * state and is quick to seed, making a new source per asset cheap. A source
+ * is not thread safe and should only be used by one generation at a time.
+ */
+public class SeededRandomSource implements RandomSource {
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private long state;
+
+	public SeededRandomSource(long seed) {
+		this.state = seed;
+	}
+
+	/**
+	 * Returns the next 64 random bits
+	 *
+	 * @return {@link long}
+	 */
+	public long nextLong() {
+
+		long z = (state += GOLDEN_GAMMA);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+		return z ^ (z >>> 31);
+	}
+
+	@Override
+	public int anyRandomIntRange(int min, int max) {
+
+		int bound = (max - min) + 1;
+
+		if ((bound & -bound) == bound) {
+			// a power of two, the top bits can be used as they are
+			return min + (int) ((bound * (nextLong() >>> 33)) >> 31);
+		}
+
+		// throw away draws from the incomplete last run of bound values so
+		// every value is equally likely
+		int bits;
+		int value;
+
+		do {
+			bits = (int) (nextLong() >>> 33);
+			value = bits % bound;
+		} while (bits - value + (bound - 1) < 0);
+
+		return min + value;
+	}
+}
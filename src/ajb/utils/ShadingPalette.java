@@ -0,0 +1,149 @@
+package ajb.utils;
+
+import java.awt.Color;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import ajb.domain.Pixel;
+
+/**
+ * The colour of every pixel value at every depth for one pair of colours,
+ * worked out up front so rendering only has to look them up.
+ *
+ * Filled pixels are the primary colour lightened by 5% per level of depth up
+ * to a limit of 300%, secondary pixels the secondary colour lightened by 5%
+ * per level with no limit other than every channel reaching full. Beyond the
+ * depth at which a colour stops changing the last entry is used.
+ *
+ * Palettes never change once made, so one palette can be used by any number
+ * of threads at once and palettes are cached by colour pair.
+ */
+public final class ShadingPalette {
+
+	private static final int MAX_CACHED_PALETTES = 256;
+
+	private static final ConcurrentMap<Long, ShadingPalette> CACHE = new ConcurrentHashMap<Long, ShadingPalette>();
+
+	private final int[] primaryByDepth;
+	private final int[] secondaryByDepth;
+
+	private ShadingPalette(Color primaryColor, Color secondaryColor) {
+		this.primaryByDepth = shadePrimary(primaryColor);
+		this.secondaryByDepth = shadeSecondary(secondaryColor);
+	}
+
+	/**
+	 * Returns the palette for the passed in colours, making it if it isn't
+	 * already cached
+	 *
+	 * @param primaryColor
+	 *            {@link Color}
+	 * @param secondaryColor
+	 *            {@link Color}
+	 * @return {@link ShadingPalette}
+	 */
+	public static ShadingPalette of(Color primaryColor, Color secondaryColor) {
+
+		Long key = Long.valueOf(((long) primaryColor.getRGB() << 32) | (secondaryColor.getRGB() & 0xFFFFFFFFL));
+
+		ShadingPalette palette = CACHE.get(key);
+
+		if (palette == null) {
+
+			// colours picked by hand can be anything, so rather than let the
+			// cache grow forever start again once it gets big
+			if (CACHE.size() >= MAX_CACHED_PALETTES) {
+				CACHE.clear();
+			}
+
+			palette = new ShadingPalette(primaryColor, secondaryColor);
+
+			ShadingPalette existing = CACHE.putIfAbsent(key, palette);
+
+			if (existing != null) {
+				palette = existing;
+			}
+		}
+
+		return palette;
+	}
+
+	/**
+	 * Returns the colour, packed as ARGB, of a pixel with the passed in value
+	 * and depth. Empty pixels are clear.
+	 *
+	 * @param value
+	 *            {@link int}
+	 * @param depth
+	 *            {@link int}
+	 * @return {@link int}
+	 */
+	public int argbOf(int value, int depth) {
+
+		if (value == Pixel.FILLED) {
+			return primaryByDepth[Math.min(depth, primaryByDepth.length - 1)];
+		} else if (value == Pixel.SECONDARY) {
+			return secondaryByDepth[Math.min(depth, secondaryByDepth.length - 1)];
+		} else if (value == Pixel.BORDER) {
+			return 0xFF000000;
+		}
+
+		return 0;
+	}
+
+	private static int[] shadePrimary(Color color) {
+
+		// every depth past the first where the fraction is over the limit is
+		// given the limit, so that entry is the last one needed
+		int noOfDepths = 1;
+
+		while ((noOfDepths - 1) * 0.05 <= 3) {
+			noOfDepths++;
+		}
+
+		int[] shades = new int[noOfDepths];
+
+		for (int depth = 0; depth < noOfDepths; depth++) {
+			shades[depth] = ColorUtils.lighterArgb(color, depth * 0.05 > 3 ? 3 : depth * 0.05);
+		}
+
+		return shades;
+	}
+
+	private static int[] shadeSecondary(Color color) {
+
+		// lightening only stops changing a colour once every channel that
+		// isn't zero has reached full
+		int saturated = color.getRGB();
+
+		for (int shift = 0; shift < 24; shift += 8) {
+			if (((saturated >> shift) & 0xFF) != 0) {
+				saturated |= 0xFF << shift;
+			}
+		}
+
+		int[] shades = new int[64];
+		int noOfDepths = 0;
+
+		while (true) {
+
+			if (noOfDepths == shades.length) {
+				int[] grownShades = new int[shades.length * 2];
+				System.arraycopy(shades, 0, grownShades, 0, noOfDepths);
+				shades = grownShades;
+			}
+
+			int shade = ColorUtils.lighterArgb(color, noOfDepths * 0.05);
+			shades[noOfDepths++] = shade;
+
+			if (shade == saturated) {
+				break;
+			}
+		}
+
+		int[] result = new int[noOfDepths];
+		System.arraycopy(shades, 0, result, 0, noOfDepths);
+
+		return result;
+	}
+}